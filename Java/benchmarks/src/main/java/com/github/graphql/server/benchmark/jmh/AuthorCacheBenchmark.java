@@ -0,0 +1,73 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.jmh;
+
+import com.github.graphql.server.benchmark.vertx.AuthorCache;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Lookups in a warm author cache, as done by the {@code author} DataLoader when the cache is enabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthorCacheBenchmark {
+
+  AuthorCache authorCache;
+  Function<Set<Integer>, CompletableFuture<Map<Integer, JsonObject>>> loader;
+  Set<Integer> oneAuthor = Collections.singleton(1);
+  Set<Integer> allAuthors;
+
+  @Setup
+  public void setup() {
+    InMemoryBlog blog = new InMemoryBlog();
+    allAuthors = blog.authors.keySet();
+    loader = ids -> CompletableFuture.completedFuture(InMemoryBlog.select(blog.authors, ids));
+    authorCache = new AuthorCache(new JsonObject());
+    authorCache.getAll(allAuthors, loader).join();
+  }
+
+  @Benchmark
+  public Map<Integer, JsonObject> getOne() {
+    return authorCache.getAll(oneAuthor, loader).join();
+  }
+
+  @Benchmark
+  public Map<Integer, JsonObject> getAll() {
+    return authorCache.getAll(allAuthors, loader).join();
+  }
+}
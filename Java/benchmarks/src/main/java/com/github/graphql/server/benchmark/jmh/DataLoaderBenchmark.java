@@ -0,0 +1,89 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.jmh;
+
+import com.github.graphql.server.benchmark.vertx.BlogSchema;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import org.dataloader.DataLoader;
+import org.dataloader.DataLoaderRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of the per-request DataLoaders of the server: creating the registry, then loading and dispatching a batch of
+ * posts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataLoaderBenchmark {
+
+  @Param({"1", "10", "100"})
+  int keys;
+
+  Vertx vertx;
+  BlogSchema schema;
+  RoutingContext rc = InMemoryBlog.context();
+  // The key context of a post load which selects all the columns
+  Set<String> columns = new HashSet<>(Arrays.asList("author_id", "title", "content"));
+
+  @Setup
+  public void setup() {
+    vertx = Vertx.vertx();
+    schema = new InMemoryBlog().schema(vertx);
+  }
+
+  @TearDown
+  public void tearDown() {
+    vertx.close();
+  }
+
+  @Benchmark
+  public DataLoaderRegistry registry() {
+    return schema.dataLoaderRegistry(rc);
+  }
+
+  @Benchmark
+  public List<JsonObject> loadAndDispatch() {
+    DataLoader<Integer, JsonObject> dataLoader = schema.dataLoaderRegistry(rc).getDataLoader("post");
+    for (int i = 1; i <= keys; i++) {
+      dataLoader.load(i, columns);
+    }
+    return dataLoader.dispatchAndJoin();
+  }
+}
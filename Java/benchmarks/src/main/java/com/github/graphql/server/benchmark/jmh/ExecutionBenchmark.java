@@ -0,0 +1,103 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.jmh;
+
+import com.github.graphql.server.benchmark.vertx.BlogSchema;
+import com.github.graphql.server.benchmark.vertx.DocumentCache;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import io.vertx.core.Vertx;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes the benchmark queries against the server schema over the in-memory blog, so that only the GraphQL engine and
+ * server overhead is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecutionBenchmark {
+
+  @Param({"allPostsDesktop", "allPostsMobile", "authorProfileDesktop", "authorProfileMobile"})
+  String query;
+
+  @Param({"true", "false"})
+  boolean documentCache;
+
+  Vertx vertx;
+  BlogSchema schema;
+  GraphQL graphQL;
+  String queryText;
+  Map<String, Object> variables = Collections.emptyMap();
+
+  @Setup
+  public void setup() {
+    vertx = Vertx.vertx();
+    schema = new InMemoryBlog().schema(vertx);
+    graphQL = InMemoryBlog.graphQL(schema, documentCache ? new DocumentCache(1000) : null);
+    switch (query) {
+      case "allPostsDesktop":
+        queryText = InMemoryBlog.ALL_POSTS_DESKTOP;
+        break;
+      case "allPostsMobile":
+        queryText = InMemoryBlog.ALL_POSTS_MOBILE;
+        break;
+      case "authorProfileDesktop":
+        queryText = InMemoryBlog.AUTHOR_PROFILE_DESKTOP;
+        variables = Collections.singletonMap("authorId", 1);
+        break;
+      case "authorProfileMobile":
+        queryText = InMemoryBlog.AUTHOR_PROFILE_MOBILE;
+        variables = Collections.singletonMap("authorId", 1);
+        break;
+      default:
+        throw new IllegalArgumentException(query);
+    }
+    ExecutionResult result = execute();
+    if (!result.getErrors().isEmpty()) {
+      throw new IllegalStateException(result.getErrors().toString());
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    vertx.close();
+  }
+
+  @Benchmark
+  public ExecutionResult execute() {
+    return graphQL.execute(InMemoryBlog.newExecutionInput(schema, queryText).variables(variables));
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.jmh;
+
+import com.github.graphql.server.benchmark.vertx.BlogSchema;
+import com.github.graphql.server.benchmark.vertx.InMemoryData;
+import graphql.ExecutionInput;
+import graphql.GraphQL;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The benchmark dataset, in memory: 10 authors, 2 posts per author and 2 comments per post.
+ * <p>
+ * Operations run against the server {@link BlogSchema}, with its data fetchers, DataLoaders and projections, over
+ * in-memory tables: data fetchers and batch loaders complete immediately.
+ */
+public class InMemoryBlog {
+
+  public static final String ALL_POSTS_DESKTOP = "{ posts { author { firstName lastName } title content comments { author { firstName lastName } content } } }";
+  public static final String ALL_POSTS_MOBILE = "{ posts { author { firstName lastName } title content } }";
+  public static final String AUTHOR_PROFILE_DESKTOP = "query ($authorId: Int!) { author(id: $authorId) { firstName lastName bio posts { title content } comments { post { title } content } } }";
+  public static final String AUTHOR_PROFILE_MOBILE = "query ($authorId: Int!) { author(id: $authorId) { firstName lastName bio posts { title } } }";
+
+  private static final int AUTHORS = 10;
+
+  final Map<Integer, JsonObject> authors = new HashMap<>();
+  final Map<Integer, JsonObject> posts = new HashMap<>();
+  final Map<Integer, JsonArray> commentsByPost = new HashMap<>();
+
+  public InMemoryBlog() {
+    int postId = 0;
+    for (int authorId = 1; authorId <= AUTHORS; authorId++) {
+      authors.put(authorId, new JsonObject()
+        .put("id", authorId)
+        .put("firstName", "Firstname" + authorId)
+        .put("lastName", "Lastname" + authorId)
+        .put("bio", "Nunquam perdere parma, sunt vigiles magicae camerarius, secundus demissioes."));
+      for (int i = 0; i < 2; i++) {
+        postId++;
+        posts.put(postId, new JsonObject()
+          .put("id", postId)
+          .put("author_id", authorId)
+          .put("title", "Est brevis domina, cesaris.")
+          .put("content", "Velox, brevis cliniass satis attrahendam de teres, magnum eleates."));
+        commentsByPost.put(postId, new JsonArray()
+          .add(new JsonObject().put("post_id", postId).put("author_id", authorId % AUTHORS + 1).put("content", "Heu, lotus bubos ducunt ad liberi."))
+          .add(new JsonObject().put("post_id", postId).put("author_id", authorId).put("content", "Seculas favere! A falsis, diatria audax zeta.")));
+      }
+    }
+  }
+
+  /**
+   * @return the schema of a server with the default settings, over the dataset
+   */
+  public BlogSchema schema(Vertx vertx) {
+    List<JsonObject> comments = new ArrayList<>();
+    commentsByPost.values().forEach(array -> array.forEach(comment -> comments.add((JsonObject) comment)));
+    InMemoryData data = new InMemoryData(new ArrayList<>(posts.values()), comments, new ArrayList<>(authors.values()));
+    // Without any registry added, meters are no-ops
+    return new BlogSchema(vertx, new JsonObject(), new CompositeMeterRegistry(), null, null, null, null, data);
+  }
+
+  public static GraphQL graphQL(BlogSchema schema, PreparsedDocumentProvider documentProvider) {
+    GraphQL.Builder builder = GraphQL.newGraphQL(schema.schema(false));
+    if (documentProvider != null) {
+      builder.preparsedDocumentProvider(documentProvider);
+    }
+    return builder.build();
+  }
+
+  /**
+   * @return the input of an operation, with the context and DataLoaders of a new request
+   */
+  public static ExecutionInput.Builder newExecutionInput(BlogSchema schema, String query) {
+    RoutingContext rc = context();
+    return ExecutionInput.newExecutionInput(query)
+      .context(rc)
+      .dataLoaderRegistry(schema.dataLoaderRegistry(rc));
+  }
+
+  /**
+   * Data fetchers only use the data of the routing context of a request, so there is no need for an HTTP request.
+   */
+  static RoutingContext context() {
+    Map<String, Object> data = new HashMap<>();
+    return (RoutingContext) Proxy.newProxyInstance(InMemoryBlog.class.getClassLoader(), new Class<?>[]{RoutingContext.class}, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "get":
+          return data.get((String) args[0]);
+        case "put":
+          data.put((String) args[0], args[1]);
+          return proxy;
+        case "remove":
+          return data.remove((String) args[0]);
+        case "data":
+          return data;
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "equals":
+          return proxy == args[0];
+        case "toString":
+          return "RoutingContext" + data;
+        default:
+          throw new IllegalStateException("Not a request context: " + method.getName());
+      }
+    });
+  }
+
+  static <V> Map<Integer, V> select(Map<Integer, V> map, Set<Integer> keys) {
+    Map<Integer, V> result = new HashMap<>(keys.size());
+    for (Integer key : keys) {
+      V value = map.get(key);
+      if (value != null) {
+        result.put(key, value);
+      }
+    }
+    return result;
+  }
+}
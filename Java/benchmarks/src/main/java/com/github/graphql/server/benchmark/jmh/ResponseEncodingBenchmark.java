@@ -0,0 +1,77 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.jmh;
+
+import com.github.graphql.server.benchmark.vertx.JsonResponseWriter;
+import com.github.graphql.server.benchmark.vertx.BlogSchema;
+import graphql.ExecutionResult;
+import io.netty.buffer.ByteBuf;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.Json;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes the result of the all posts desktop query, with both encodings of the {@code streamingResponse} setting.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseEncodingBenchmark {
+
+  ExecutionResult result;
+
+  @Setup
+  public void setup() {
+    Vertx vertx = Vertx.vertx();
+    try {
+      BlogSchema schema = new InMemoryBlog().schema(vertx);
+      result = InMemoryBlog.graphQL(schema, null).execute(InMemoryBlog.newExecutionInput(schema, InMemoryBlog.ALL_POSTS_DESKTOP));
+    } finally {
+      vertx.close();
+    }
+  }
+
+  @Benchmark
+  public int streaming() {
+    ByteBuf byteBuf = JsonResponseWriter.encode(result);
+    try {
+      return byteBuf.readableBytes();
+    } finally {
+      byteBuf.release();
+    }
+  }
+
+  @Benchmark
+  public Buffer specification() {
+    return Json.encodeToBuffer(result.toSpecification());
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.jmh;
+
+import com.github.graphql.server.benchmark.vertx.Projection;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.pgclient.impl.RowImpl;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.impl.RowDesc;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maps Postgres rows to JSON objects, as done for every post and comment query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMappingBenchmark {
+
+  List<Row> postRows = new ArrayList<>();
+  List<Row> commentRows = new ArrayList<>();
+
+  @Setup
+  public void setup() {
+    RowDesc postDesc = new RowDesc(Arrays.asList("id", "author_id", "title", "content"));
+    RowDesc commentDesc = new RowDesc(Arrays.asList("post_id", "author_id", "content"));
+    InMemoryBlog blog = new InMemoryBlog();
+    blog.posts.values().forEach(post -> {
+      RowImpl row = new RowImpl(postDesc);
+      row.addValue(post.getInteger("id"));
+      row.addValue(post.getInteger("author_id"));
+      row.addValue(post.getString("title"));
+      row.addValue(post.getString("content"));
+      postRows.add(row);
+    });
+    blog.commentsByPost.values().forEach(comments -> comments.forEach(object -> {
+      JsonObject comment = (JsonObject) object;
+      RowImpl row = new RowImpl(commentDesc);
+      row.addValue(comment.getInteger("post_id"));
+      row.addValue(comment.getInteger("author_id"));
+      row.addValue(comment.getString("content"));
+      commentRows.add(row);
+    }));
+  }
+
+  @Benchmark
+  public JsonArray posts() {
+    return toJson(postRows);
+  }
+
+  @Benchmark
+  public JsonArray comments() {
+    return toJson(commentRows);
+  }
+
+  private static JsonArray toJson(List<Row> rows) {
+    JsonArray array = new JsonArray();
+    for (Row row : rows) {
+      array.add(Projection.toJson(row));
+    }
+    return array;
+  }
+}
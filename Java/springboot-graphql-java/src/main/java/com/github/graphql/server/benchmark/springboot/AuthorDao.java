@@ -16,17 +16,30 @@
 
 package com.github.graphql.server.benchmark.springboot;
 
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
 import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.LoadingCache;
 import graphql.schema.DataFetchingEnvironment;
-import graphql.servlet.GraphQLContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.dataloader.DataLoader;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 
 import javax.annotation.PostConstruct;
-import javax.servlet.http.HttpServletRequest;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.stream.Collectors.joining;
 
 @Component
 public class AuthorDao {
@@ -37,27 +50,83 @@ public class AuthorDao {
   @Autowired
   Environment env;
 
+  @Autowired
+  MeterRegistry meterRegistry;
+
+  @Autowired(required = false)
+  InMemoryData inMemoryData;
+
   WebClient webClient;
+  Timer backendTimer;
+  AsyncLoadingCache<Integer, Author> authorCache;
 
   @PostConstruct
   void init() {
     this.webClient = webClientBuilder.baseUrl(env.getProperty("backend.baseUrl")).build();
+    this.backendTimer = Timer.builder("backend.request")
+      .tag("uri", "/authors")
+      .publishPercentileHistogram()
+      .register(meterRegistry);
+    if (env.getProperty("authorCache.enabled", Boolean.class, false)) {
+      this.authorCache = buildAuthorCache();
+    }
+  }
+
+  private AsyncLoadingCache<Integer, Author> buildAuthorCache() {
+    Caffeine<Object, Object> builder = Caffeine.newBuilder()
+      .maximumSize(env.getProperty("authorCache.maxSize", Long.class, 10000L))
+      .recordStats();
+    long expireAfterWrite = env.getProperty("authorCache.expireAfterWrite", Long.class, 60000L);
+    if (expireAfterWrite > 0) {
+      builder.expireAfterWrite(expireAfterWrite, MILLISECONDS);
+    }
+    long refreshAfterWrite = env.getProperty("authorCache.refreshAfterWrite", Long.class, 0L);
+    if (refreshAfterWrite > 0) {
+      builder.refreshAfterWrite(refreshAfterWrite, MILLISECONDS);
+    }
+    AsyncLoadingCache<Integer, Author> cache = builder.buildAsync(new AsyncCacheLoader<Integer, Author>() {
+      @Override
+      public CompletableFuture<Author> asyncLoad(Integer key, Executor executor) {
+        return loadAuthors(Collections.singleton(key), null).thenApply(authors -> authors.get(key));
+      }
+
+      @Override
+      public CompletableFuture<Map<Integer, Author>> asyncLoadAll(Iterable<? extends Integer> keys, Executor executor) {
+        Set<Integer> set = new HashSet<>();
+        keys.forEach(set::add);
+        return loadAuthors(set, null);
+      }
+    });
+    CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "authors");
+    return cache;
   }
 
-  public Author findById(int authorId, DataFetchingEnvironment env) {
-    LoadingCache<Integer, Author> authorCache = getAuthorCache(env);
-    return authorCache.get(authorId);
+  public CompletableFuture<Author> findById(int authorId, DataFetchingEnvironment env) {
+    DataLoader<Integer, Author> author = env.getDataLoader("author");
+    return author.load(authorId);
   }
 
-  private LoadingCache<Integer, Author> getAuthorCache(DataFetchingEnvironment env) {
-    GraphQLContext context = env.getContext();
-    HttpServletRequest httpServletRequest = context.getHttpServletRequest().get();
-    LoadingCache<Integer, Author> authorCache = (LoadingCache<Integer, Author>) httpServletRequest.getAttribute("authorCache");
-    if (authorCache == null) {
-      authorCache = Caffeine.newBuilder()
-        .build(key -> webClient.get().uri("/author/{id}", key).retrieve().bodyToMono(Author.class).block());
-      httpServletRequest.setAttribute("authorCache", authorCache);
+  public CompletableFuture<Map<Integer, Author>> findAuthors(Set<Integer> keys, RequestTrace trace) {
+    if (inMemoryData != null) {
+      return inMemoryData.findAuthors(keys);
     }
-    return authorCache;
+    return authorCache != null ? authorCache.getAll(keys) : loadAuthors(keys, trace);
+  }
+
+  private CompletableFuture<Map<Integer, Author>> loadAuthors(Set<Integer> keys, RequestTrace trace) {
+    String ids = keys.stream().map(String::valueOf).collect(joining(","));
+    long start = System.nanoTime();
+    return webClient.get().uri("/authors?ids={ids}", ids)
+      .retrieve()
+      .bodyToFlux(Author.class)
+      .collectMap(Author::getId)
+      .toFuture()
+      .whenComplete((authors, throwable) -> {
+        long end = System.nanoTime();
+        backendTimer.record(end - start, NANOSECONDS);
+        if (trace != null) {
+          trace.backendCall("/authors?ids=" + ids, start, end);
+        }
+      });
   }
 }
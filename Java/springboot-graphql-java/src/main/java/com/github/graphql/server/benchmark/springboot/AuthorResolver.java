@@ -17,10 +17,12 @@
 package com.github.graphql.server.benchmark.springboot;
 
 import com.coxautodev.graphql.tools.GraphQLResolver;
+import graphql.schema.DataFetchingEnvironment;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Component
 public class AuthorResolver implements GraphQLResolver<Author> {
@@ -31,11 +33,16 @@ public class AuthorResolver implements GraphQLResolver<Author> {
   @Autowired
   CommentDao commentDao;
 
-  public List<Post> getPosts(Author author) {
-    return postDao.findByAuthorId(author.getId());
+  @Autowired
+  JdbcExecutor jdbcExecutor;
+
+  public CompletableFuture<List<Post>> getPosts(Author author, DataFetchingEnvironment env) {
+    List<String> columns = Projection.postColumns(env.getSelectionSet());
+    return jdbcExecutor.supplyAsync("postsByAuthor", PostDao.postsByAuthorSql(columns), RequestTrace.of(env.getContext()), () -> postDao.findByAuthorId(author.getId(), columns));
   }
 
-  public List<Comment> getComments(Author author) {
-    return commentDao.findByAuthorId(author.getId());
+  public CompletableFuture<List<Comment>> getComments(Author author, DataFetchingEnvironment env) {
+    List<String> columns = Projection.commentColumns(env.getSelectionSet());
+    return jdbcExecutor.supplyAsync("commentsByAuthor", CommentDao.commentsByAuthorSql(columns), RequestTrace.of(env.getContext()), () -> commentDao.findByAuthorId(author.getId(), columns));
   }
 }
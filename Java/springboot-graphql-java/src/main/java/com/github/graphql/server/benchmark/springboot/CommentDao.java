@@ -18,11 +18,10 @@ package com.github.graphql.server.benchmark.springboot;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
 
 import java.sql.JDBCType;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -35,24 +34,47 @@ public class CommentDao {
   @Autowired
   JdbcTemplate jdbcTemplate;
 
-  public List<Comment> findByAuthorId(Integer authorId) {
+  @Autowired(required = false)
+  InMemoryData inMemoryData;
+
+  public List<Comment> findByAuthorId(Integer authorId, List<String> columns) {
+    if (inMemoryData != null) {
+      return inMemoryData.findCommentsByAuthorId(authorId);
+    }
     return jdbcTemplate.query(
-      "select * from comments where author_id = ?",
+      commentsByAuthorSql(columns),
       ps -> ps.setInt(1, authorId),
-      this::toComment
+      commentMapper(columns)
     );
   }
 
-  public Map<Integer, List<Comment>> findComments(Set<Integer> keys) {
+  public Map<Integer, List<Comment>> findComments(Set<Integer> keys, List<String> columns) {
+    if (inMemoryData != null) {
+      return inMemoryData.findComments(keys);
+    }
     Integer[] array = keys.toArray(new Integer[0]);
     return jdbcTemplate.query(
-      "select * from comments where post_id = any(?)",
+      commentsByPostsSql(columns),
       ps -> ps.setArray(1, ps.getConnection().createArrayOf(JDBCType.INTEGER.getName(), array)),
-      this::toComment
+      commentMapper(columns)
     ).stream().collect(groupingBy(Comment::getPostId));
   }
 
-  private Comment toComment(ResultSet rs, int idx) throws SQLException {
-    return new Comment(rs.getInt("post_id"), rs.getInt("author_id"), rs.getString("content"));
+  static String commentsByAuthorSql(List<String> columns) {
+    return "select " + Projection.select(columns) + " from comments where author_id = ?";
+  }
+
+  static String commentsByPostsSql(List<String> columns) {
+    return "select " + Projection.select(columns) + " from comments where post_id = any(?)";
+  }
+
+  private RowMapper<Comment> commentMapper(List<String> columns) {
+    boolean authorId = columns.contains("author_id");
+    boolean content = columns.contains("content");
+    return (rs, idx) -> new Comment(
+      rs.getInt("post_id"),
+      authorId ? rs.getInt("author_id") : 0,
+      content ? rs.getString("content") : null
+    );
   }
 }
@@ -32,10 +32,10 @@ public class CommentResolver implements GraphQLResolver<Comment> {
 
   public CompletableFuture<Post> getPost(Comment comment, DataFetchingEnvironment env) {
     DataLoader<Integer, Post> post = env.getDataLoader("post");
-    return post.load(comment.getPostId());
+    return Projection.loadPost(env, post, comment.getPostId());
   }
 
-  public Author getAuthor(Comment comment, DataFetchingEnvironment env) {
+  public CompletableFuture<Author> getAuthor(Comment comment, DataFetchingEnvironment env) {
     return authorDao.findById(comment.getAuthorId(), env);
   }
 }
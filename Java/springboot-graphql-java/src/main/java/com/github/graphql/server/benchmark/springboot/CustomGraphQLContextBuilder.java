@@ -19,17 +19,25 @@ package com.github.graphql.server.benchmark.springboot;
 import graphql.servlet.DefaultGraphQLContextBuilder;
 import graphql.servlet.GraphQLContext;
 import graphql.servlet.GraphQLContextBuilder;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.dataloader.DataLoader;
+import org.dataloader.DataLoaderOptions;
 import org.dataloader.DataLoaderRegistry;
+import org.dataloader.MappedBatchLoaderWithContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.websocket.Session;
 import javax.websocket.server.HandshakeRequest;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 @Component
 public class CustomGraphQLContextBuilder implements GraphQLContextBuilder {
@@ -40,36 +48,94 @@ public class CustomGraphQLContextBuilder implements GraphQLContextBuilder {
   @Autowired
   PostDao postDao;
 
+  @Autowired
+  AuthorDao authorDao;
+
+  @Autowired
+  JdbcExecutor jdbcExecutor;
+
+  @Autowired
+  MeterRegistry meterRegistry;
+
+  @Autowired
+  Environment env;
+
+  boolean traceEnabled;
+  MappedBatchLoaderWithContext<Integer, List<Comment>> commentBatchLoader;
+  MappedBatchLoaderWithContext<Integer, Post> postBatchLoader;
+  MappedBatchLoaderWithContext<Integer, Author> authorBatchLoader;
+
+  @PostConstruct
+  void init() {
+    traceEnabled = env.getProperty("trace.enabled", Boolean.class, false);
+    commentBatchLoader = timedBatchLoader("comment", (keys, env) -> {
+      List<String> columns = Projection.commentColumns(env);
+      return jdbcExecutor.supplyAsync("commentsByPosts", CommentDao.commentsByPostsSql(columns), env.getContext(), () -> commentDao.findComments(keys, columns));
+    });
+    postBatchLoader = timedBatchLoader("post", (keys, env) -> {
+      List<String> columns = Projection.postColumns(env);
+      return jdbcExecutor.supplyAsync("postsByIds", PostDao.postsByIdsSql(columns), env.getContext(), () -> postDao.findPosts(keys, columns));
+    });
+    authorBatchLoader = timedBatchLoader("author", (keys, env) -> authorDao.findAuthors(keys, env.getContext()));
+  }
+
+  private <K, V> MappedBatchLoaderWithContext<K, V> timedBatchLoader(String name, MappedBatchLoaderWithContext<K, V> batchLoader) {
+    Timer timer = Timer.builder("dataloader.batch")
+      .tag("loader", name)
+      .publishPercentileHistogram()
+      .register(meterRegistry);
+    DistributionSummary batchSize = DistributionSummary.builder("dataloader.batch.size")
+      .tag("loader", name)
+      .publishPercentileHistogram()
+      .register(meterRegistry);
+    return (keys, env) -> {
+      batchSize.record(keys.size());
+      RequestTrace trace = env.getContext();
+      long start = System.nanoTime();
+      return batchLoader.load(keys, env).whenComplete((result, throwable) -> {
+        long end = System.nanoTime();
+        timer.record(end - start, NANOSECONDS);
+        if (trace != null) {
+          trace.dataLoader(name, keys.size(), start, end);
+        }
+      });
+    };
+  }
+
   @Override
   public GraphQLContext build(HttpServletRequest req, HttpServletResponse response) {
     GraphQLContext context = new DefaultGraphQLContextBuilder().build(req, response);
-    context.setDataLoaderRegistry(buildDataLoaderRegistry());
+    Projection.start(req);
+    RequestTrace trace = null;
+    if (traceEnabled && "true".equalsIgnoreCase(req.getHeader(RequestTrace.HEADER))) {
+      trace = RequestTrace.start(req);
+    }
+    context.setDataLoaderRegistry(buildDataLoaderRegistry(trace));
     return context;
   }
 
   @Override
   public GraphQLContext build() {
     GraphQLContext context = new DefaultGraphQLContextBuilder().build();
-    context.setDataLoaderRegistry(buildDataLoaderRegistry());
+    context.setDataLoaderRegistry(buildDataLoaderRegistry(null));
     return context;
   }
 
   @Override
   public GraphQLContext build(Session session, HandshakeRequest request) {
     GraphQLContext context = new DefaultGraphQLContextBuilder().build(session, request);
-    context.setDataLoaderRegistry(buildDataLoaderRegistry());
+    context.setDataLoaderRegistry(buildDataLoaderRegistry(null));
     return context;
   }
 
-  private DataLoaderRegistry buildDataLoaderRegistry() {
-    DataLoader<Integer, List<Comment>> commentDataLoader = DataLoader.newMappedDataLoader((keys, env) -> {
-      return CompletableFuture.completedFuture(commentDao.findComments(keys));
-    });
-    DataLoader<Integer, Post> postDataLoader = DataLoader.newMappedDataLoader((keys, env) -> {
-      return CompletableFuture.completedFuture(postDao.findPosts(keys));
-    });
+  private DataLoaderRegistry buildDataLoaderRegistry(RequestTrace trace) {
+    DataLoaderOptions options = DataLoaderOptions.newOptions().setBatchLoaderContextProvider(() -> trace);
+    DataLoader<Integer, List<Comment>> commentDataLoader = DataLoader.newMappedDataLoader(commentBatchLoader, options);
+    DataLoader<Integer, Post> postDataLoader = DataLoader.newMappedDataLoader(postBatchLoader, options);
+    DataLoader<Integer, Author> authorDataLoader = DataLoader.newMappedDataLoader(authorBatchLoader, options);
     return new DataLoaderRegistry()
       .register("comment", commentDataLoader)
-      .register("post", postDataLoader);
+      .register("post", postDataLoader)
+      .register("author", authorDataLoader);
   }
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.springboot;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import graphql.ExecutionInput;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.function.Function;
+
+/**
+ * Keeps parsed and validated documents, keyed by query text, so that repeated queries skip the parse and validate phases.
+ */
+@Component
+public class DocumentCache implements PreparsedDocumentProvider {
+
+  @Autowired
+  Environment env;
+
+  @Autowired
+  MeterRegistry meterRegistry;
+
+  Cache<String, PreparsedDocumentEntry> cache;
+
+  @PostConstruct
+  void init() {
+    cache = Caffeine.newBuilder()
+      .maximumSize(env.getProperty("graphql.documentCache.maxSize", Long.class, 1000L))
+      .recordStats()
+      .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "documents");
+  }
+
+  @Override
+  public PreparsedDocumentEntry getDocument(ExecutionInput executionInput, Function<ExecutionInput, PreparsedDocumentEntry> computeFunction) {
+    return cache.get(executionInput.getQuery(), query -> computeFunction.apply(executionInput));
+  }
+}
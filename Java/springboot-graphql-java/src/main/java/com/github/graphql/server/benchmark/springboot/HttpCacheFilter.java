@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.springboot;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+import static com.github.graphql.server.benchmark.springboot.PersistedQueryFilter.GRAPHQL_PATH;
+
+/**
+ * Adds a {@code Cache-Control} header and an {@code ETag} computed from the body to {@code GET} responses, and sends a
+ * {@code 304} response when the client has the same body.
+ * <p>
+ * The body is buffered until the servlet returns, so the GraphQL servlet must not complete requests asynchronously.
+ * Results with errors are marked {@code no-store} by the {@link HttpCacheInstrumentation}, and get no {@code ETag}.
+ */
+@Component
+@ConditionalOnProperty(name = "httpCache.enabled", havingValue = "true")
+public class HttpCacheFilter extends ShallowEtagHeaderFilter {
+
+  @Autowired
+  Environment env;
+
+  String cacheControl;
+
+  @PostConstruct
+  void init() {
+    long maxAge = env.getProperty("httpCache.maxAge", Long.class, 0L);
+    // Without a max age, caches must revalidate each response with its ETag
+    cacheControl = maxAge > 0 ? "public, max-age=" + maxAge : "no-cache";
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !"GET".equals(request.getMethod()) || !GRAPHQL_PATH.equals(request.getRequestURI());
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+    response.setHeader("Cache-Control", cacheControl);
+    super.doFilterInternal(request, response, filterChain);
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.springboot;
+
+import graphql.ExecutionResult;
+import graphql.execution.instrumentation.SimpleInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.servlet.GraphQLContext;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Marks responses to operations with errors {@code no-store}, so that neither the {@link HttpCacheFilter} nor
+ * intermediaries cache a transient failure.
+ */
+@Component
+@ConditionalOnProperty(name = "httpCache.enabled", havingValue = "true")
+public class HttpCacheInstrumentation extends SimpleInstrumentation {
+
+  @Override
+  public CompletableFuture<ExecutionResult> instrumentExecutionResult(ExecutionResult executionResult, InstrumentationExecutionParameters parameters) {
+    Object context = parameters.getExecutionInput().getContext();
+    if (!executionResult.getErrors().isEmpty() && context instanceof GraphQLContext) {
+      ((GraphQLContext) context).getHttpServletResponse().ifPresent(response -> response.setHeader("Cache-Control", "no-store"));
+    }
+    return super.instrumentExecutionResult(executionResult, parameters);
+  }
+}
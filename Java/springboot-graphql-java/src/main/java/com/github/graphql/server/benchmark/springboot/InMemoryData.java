@@ -0,0 +1,272 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.springboot;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Blog data loaded from the Postgres data script and the backend data file, in tables indexed by identifier.
+ * <p>
+ * When a delay is configured, post and comment lookups block for that time, like JDBC queries, while author lookups
+ * complete asynchronously after that time, like backend calls.
+ */
+@Component
+@ConditionalOnProperty(name = "inMemory.enabled", havingValue = "true")
+public class InMemoryData {
+
+  private static final Pattern INSERT = Pattern.compile("INSERT INTO (\\w+) \\(([^)]*)\\)\\s*VALUES", Pattern.CASE_INSENSITIVE);
+
+  @Autowired
+  Environment env;
+
+  long delay;
+  List<Post> posts;
+  Post[] postsById;
+  List<List<Post>> postsByAuthor;
+  List<List<Comment>> commentsByPost;
+  List<List<Comment>> commentsByAuthor;
+  Author[] authorsById;
+
+  @PostConstruct
+  void init() throws IOException {
+    delay = env.getProperty("inMemory.delay", Long.class, 0L);
+    String dataScript = env.getProperty("inMemory.dataScript", "../../postgres/scripts/99-data.sql");
+    String authorsData = env.getProperty("inMemory.authorsData", "../../backend/src/main/resources/authors.data");
+
+    Map<String, List<Map<String, Object>>> tables = parseInserts(read(dataScript));
+    posts = new ArrayList<>();
+    for (Map<String, Object> row : tables.getOrDefault("posts", Collections.emptyList())) {
+      posts.add(new Post((Integer) row.get("id"), (Integer) row.get("author_id"), (String) row.get("title"), (String) row.get("content")));
+    }
+    List<Comment> comments = new ArrayList<>();
+    for (Map<String, Object> row : tables.getOrDefault("comments", Collections.emptyList())) {
+      comments.add(new Comment((Integer) row.get("post_id"), (Integer) row.get("author_id"), (String) row.get("content")));
+    }
+    List<Author> authors = parseAuthors(read(authorsData));
+
+    int maxPostId = 0;
+    int maxAuthorId = 0;
+    for (Post post : posts) {
+      maxPostId = Math.max(maxPostId, post.getId());
+      maxAuthorId = Math.max(maxAuthorId, post.getAuthorId());
+    }
+    for (Comment comment : comments) {
+      maxPostId = Math.max(maxPostId, comment.getPostId());
+      maxAuthorId = Math.max(maxAuthorId, comment.getAuthorId());
+    }
+    for (Author author : authors) {
+      maxAuthorId = Math.max(maxAuthorId, author.getId());
+    }
+
+    postsById = new Post[maxPostId + 1];
+    postsByAuthor = table(maxAuthorId + 1);
+    for (Post post : posts) {
+      postsById[post.getId()] = post;
+      postsByAuthor.get(post.getAuthorId()).add(post);
+    }
+    commentsByPost = table(maxPostId + 1);
+    commentsByAuthor = table(maxAuthorId + 1);
+    for (Comment comment : comments) {
+      commentsByPost.get(comment.getPostId()).add(comment);
+      commentsByAuthor.get(comment.getAuthorId()).add(comment);
+    }
+    authorsById = new Author[maxAuthorId + 1];
+    for (Author author : authors) {
+      authorsById[author.getId()] = author;
+    }
+  }
+
+  public List<Post> findPosts() {
+    sleep();
+    return posts;
+  }
+
+  public List<Post> findPostsByAuthorId(int authorId) {
+    sleep();
+    return get(postsByAuthor, authorId);
+  }
+
+  public Map<Integer, Post> findPosts(Set<Integer> keys) {
+    sleep();
+    Map<Integer, Post> result = new HashMap<>(keys.size());
+    for (Integer key : keys) {
+      if (key >= 0 && key < postsById.length && postsById[key] != null) {
+        result.put(key, postsById[key]);
+      }
+    }
+    return result;
+  }
+
+  public Map<Integer, List<Comment>> findComments(Set<Integer> keys) {
+    sleep();
+    // Like the SQL query, posts without comments are absent from the result
+    Map<Integer, List<Comment>> result = new HashMap<>(keys.size());
+    for (Integer key : keys) {
+      List<Comment> comments = get(commentsByPost, key);
+      if (!comments.isEmpty()) {
+        result.put(key, comments);
+      }
+    }
+    return result;
+  }
+
+  public List<Comment> findCommentsByAuthorId(int authorId) {
+    sleep();
+    return get(commentsByAuthor, authorId);
+  }
+
+  public CompletableFuture<Map<Integer, Author>> findAuthors(Set<Integer> keys) {
+    Map<Integer, Author> result = new HashMap<>(keys.size());
+    for (Integer key : keys) {
+      if (key >= 0 && key < authorsById.length && authorsById[key] != null) {
+        result.put(key, authorsById[key]);
+      }
+    }
+    if (delay <= 0) {
+      return CompletableFuture.completedFuture(result);
+    }
+    return Mono.delay(Duration.ofMillis(delay)).map(l -> result).toFuture();
+  }
+
+  private void sleep() {
+    if (delay > 0) {
+      try {
+        Thread.sleep(delay);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private static <T> List<T> get(List<List<T>> table, int id) {
+    return id >= 0 && id < table.size() ? table.get(id) : Collections.emptyList();
+  }
+
+  private static <T> List<List<T>> table(int size) {
+    List<List<T>> table = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      table.add(new ArrayList<>());
+    }
+    return table;
+  }
+
+  private static String read(String file) throws IOException {
+    return new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8);
+  }
+
+  private static List<Author> parseAuthors(String authorsData) {
+    List<Author> authors = new ArrayList<>();
+    for (String line : authorsData.split("\n")) {
+      if (line.trim().isEmpty()) {
+        continue;
+      }
+      String[] split = line.split("\\|");
+      authors.add(new Author(Integer.valueOf(split[0].trim()), split[1].trim(), split[2].trim(), split[3].trim()));
+    }
+    return authors;
+  }
+
+  /**
+   * Parses the rows of {@code INSERT INTO table (columns) VALUES (...), (...);} statements, with integer and string values.
+   */
+  static Map<String, List<Map<String, Object>>> parseInserts(String sql) {
+    Map<String, List<Map<String, Object>>> tables = new HashMap<>();
+    Matcher matcher = INSERT.matcher(sql);
+    int pos = 0;
+    while (matcher.find(pos)) {
+      String[] columns = matcher.group(2).trim().split("\\s*,\\s*");
+      List<Map<String, Object>> rows = tables.computeIfAbsent(matcher.group(1), table -> new ArrayList<>());
+      pos = parseValues(sql, matcher.end(), columns, rows);
+    }
+    return tables;
+  }
+
+  private static int parseValues(String sql, int pos, String[] columns, List<Map<String, Object>> rows) {
+    while (true) {
+      pos = expect(sql, pos, '(');
+      Map<String, Object> row = new HashMap<>();
+      for (int i = 0; i < columns.length; i++) {
+        pos = skipWhitespace(sql, pos);
+        if (sql.charAt(pos) == '\'') {
+          StringBuilder value = new StringBuilder();
+          pos++;
+          while (true) {
+            char c = sql.charAt(pos++);
+            if (c != '\'') {
+              value.append(c);
+            } else if (pos < sql.length() && sql.charAt(pos) == '\'') {
+              value.append(c);
+              pos++;
+            } else {
+              break;
+            }
+          }
+          row.put(columns[i], value.toString());
+        } else {
+          int end = pos;
+          while (sql.charAt(end) == '-' || Character.isDigit(sql.charAt(end))) {
+            end++;
+          }
+          row.put(columns[i], Integer.valueOf(sql.substring(pos, end)));
+          pos = end;
+        }
+        pos = expect(sql, pos, i < columns.length - 1 ? ',' : ')');
+      }
+      rows.add(row);
+      pos = skipWhitespace(sql, pos);
+      if (sql.charAt(pos) == ';') {
+        return pos + 1;
+      }
+      pos = expect(sql, pos, ',');
+    }
+  }
+
+  private static int expect(String sql, int pos, char expected) {
+    pos = skipWhitespace(sql, pos);
+    if (sql.charAt(pos) != expected) {
+      throw new IllegalArgumentException("Expected '" + expected + "' at offset " + pos + ", found '" + sql.charAt(pos) + "'");
+    }
+    return pos + 1;
+  }
+
+  private static int skipWhitespace(String sql, int pos) {
+    while (Character.isWhitespace(sql.charAt(pos))) {
+      pos++;
+    }
+    return pos;
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.springboot;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Runs JDBC queries off the GraphQL execution thread, so that independent batches can overlap.
+ * <p>
+ * There are as many threads as JDBC connections: more would only wait for a connection.
+ * Results are handed over to a {@code jdbc-completion} executor, so that the GraphQL execution which follows, field
+ * completion and the next DataLoader dispatch, does not hold a thread of the JDBC pool.
+ * Its queue is unbounded, since a completion must not be rejected once its query has run: the number of pending
+ * completions is bounded by the JDBC executor anyway.
+ */
+@Component
+public class JdbcExecutor {
+
+  @Autowired
+  Environment env;
+
+  @Autowired
+  MeterRegistry meterRegistry;
+
+  ThreadPoolExecutor executor;
+  ThreadPoolExecutor completionExecutor;
+  Map<String, Timer> queryTimers = new ConcurrentHashMap<>();
+
+  @PostConstruct
+  void init() {
+    int poolSize = env.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10);
+    int queueSize = env.getProperty("jdbcExecutor.queueSize", Integer.class, 1000);
+    executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, MILLISECONDS, new ArrayBlockingQueue<>(queueSize), new CustomizableThreadFactory("jdbc-"));
+    new ExecutorServiceMetrics(executor, "jdbc", Collections.emptyList()).bindTo(meterRegistry);
+    int completionPoolSize = env.getProperty("jdbcExecutor.completionPoolSize", Integer.class, 4);
+    completionExecutor = new ThreadPoolExecutor(completionPoolSize, completionPoolSize, 0L, MILLISECONDS, new LinkedBlockingQueue<>(), new CustomizableThreadFactory("jdbc-completion-"));
+    new ExecutorServiceMetrics(completionExecutor, "jdbc-completion", Collections.emptyList()).bindTo(meterRegistry);
+  }
+
+  @PreDestroy
+  void close() {
+    executor.shutdown();
+    completionExecutor.shutdown();
+  }
+
+  /**
+   * @param name the query name, which tags the {@code db.query} timer
+   * @param sql the statement text, recorded in the request trace
+   */
+  public <T> CompletableFuture<T> supplyAsync(String name, String sql, RequestTrace trace, Supplier<T> query) {
+    Timer timer = queryTimers.computeIfAbsent(name, n -> {
+      return Timer.builder("db.query")
+        .tag("query", n)
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+    });
+    try {
+      return CompletableFuture.supplyAsync(() -> {
+        long start = System.nanoTime();
+        try {
+          return query.get();
+        } finally {
+          long end = System.nanoTime();
+          timer.record(end - start, NANOSECONDS);
+          if (trace != null) {
+            trace.query(sql, start, end);
+          }
+        }
+      }, executor).thenApplyAsync(Function.identity(), completionExecutor);
+    } catch (RejectedExecutionException e) {
+      CompletableFuture<T> future = new CompletableFuture<>();
+      future.completeExceptionally(e);
+      return future;
+    }
+  }
+}
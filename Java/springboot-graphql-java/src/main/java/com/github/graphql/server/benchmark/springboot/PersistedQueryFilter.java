@@ -0,0 +1,305 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.springboot;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Automatic persisted queries, as implemented by Apollo: clients send the SHA-256 hash of the query in the
+ * {@code persistedQuery} extension, and only send the query text when the server does not know the hash yet.
+ * <p>
+ * Queries are kept in a bounded cache, and requests with a known hash are handed to the GraphQL servlet with the query
+ * text, so that the servlet needs no support for extensions.
+ */
+@Component
+@ConditionalOnProperty(name = "persistedQueries.enabled", havingValue = "true")
+public class PersistedQueryFilter extends OncePerRequestFilter {
+
+  static final String GRAPHQL_PATH = "/graphql";
+
+  private static final String NOT_FOUND = "{\"errors\":[{\"message\":\"PersistedQueryNotFound\",\"extensions\":{\"code\":\"PERSISTED_QUERY_NOT_FOUND\"}}]}";
+
+  @Autowired
+  Environment env;
+
+  @Autowired
+  MeterRegistry meterRegistry;
+
+  @Autowired
+  ObjectMapper objectMapper;
+
+  Cache<String, String> cache;
+
+  @PostConstruct
+  void init() {
+    cache = Caffeine.newBuilder()
+      .maximumSize(env.getProperty("persistedQueries.maxSize", Long.class, 1000L))
+      .recordStats()
+      .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "persistedQueries");
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !GRAPHQL_PATH.equals(request.getRequestURI());
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+    HttpServletRequest resolved;
+    try {
+      if ("GET".equals(request.getMethod())) {
+        resolved = fromQueryParams(request);
+      } else if ("POST".equals(request.getMethod()) && request.getContentType() != null && request.getContentType().startsWith("application/json")) {
+        resolved = fromBody(request);
+      } else {
+        resolved = request;
+      }
+    } catch (IllegalArgumentException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+    if (resolved == null) {
+      response.setContentType("application/json");
+      // The client registers the query with its next request, which must reach the server
+      response.setHeader("Cache-Control", "no-store");
+      response.getOutputStream().write(NOT_FOUND.getBytes(UTF_8));
+      return;
+    }
+    chain.doFilter(resolved, response);
+  }
+
+  private HttpServletRequest fromQueryParams(HttpServletRequest request) throws IOException {
+    String extensions = request.getParameter("extensions");
+    if (extensions == null) {
+      return request;
+    }
+    JsonNode json;
+    try {
+      json = objectMapper.readTree(extensions);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Invalid extensions", e);
+    }
+    String hash = hash(json);
+    if (hash == null) {
+      return request;
+    }
+    String query = request.getParameter("query");
+    if (query != null) {
+      register(hash, query);
+      return request;
+    }
+    String persisted = cache.getIfPresent(hash);
+    return persisted == null ? null : new QueryParameterRequest(request, persisted);
+  }
+
+  private HttpServletRequest fromBody(HttpServletRequest request) throws IOException {
+    byte[] body = StreamUtils.copyToByteArray(request.getInputStream());
+    JsonNode json;
+    try {
+      json = objectMapper.readTree(body);
+    } catch (JsonProcessingException e) {
+      // Left to the GraphQL servlet
+      return new BodyRequest(request, body);
+    }
+    String hash = json != null && json.isObject() ? hash(json.get("extensions")) : null;
+    if (hash == null) {
+      return new BodyRequest(request, body);
+    }
+    JsonNode query = json.get("query");
+    if (query != null && query.isTextual()) {
+      register(hash, query.asText());
+      return new BodyRequest(request, body);
+    }
+    String persisted = cache.getIfPresent(hash);
+    if (persisted == null) {
+      return null;
+    }
+    ((ObjectNode) json).put("query", persisted);
+    return new BodyRequest(request, objectMapper.writeValueAsBytes(json));
+  }
+
+  private static String hash(JsonNode extensions) {
+    JsonNode persistedQuery = extensions == null ? null : extensions.get("persistedQuery");
+    if (persistedQuery == null || !persistedQuery.isObject()) {
+      return null;
+    }
+    if (persistedQuery.path("version").asInt(1) != 1) {
+      throw new IllegalArgumentException("Unsupported persisted query version");
+    }
+    JsonNode hash = persistedQuery.get("sha256Hash");
+    if (hash == null || !hash.isTextual()) {
+      throw new IllegalArgumentException("Persisted query hash is missing");
+    }
+    return hash.asText().toLowerCase();
+  }
+
+  private void register(String hash, String query) {
+    if (!hash.equals(sha256(query))) {
+      throw new IllegalArgumentException("Provided sha does not match query");
+    }
+    cache.put(hash, query);
+  }
+
+  private static String sha256(String query) {
+    byte[] bytes;
+    try {
+      bytes = MessageDigest.getInstance("SHA-256").digest(query.getBytes(UTF_8));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    StringBuilder hex = new StringBuilder(2 * bytes.length);
+    for (byte b : bytes) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+  }
+
+  /**
+   * A {@code GET} request with the persisted query in the {@code query} parameter.
+   */
+  private static class QueryParameterRequest extends HttpServletRequestWrapper {
+
+    private final String query;
+
+    QueryParameterRequest(HttpServletRequest request, String query) {
+      super(request);
+      this.query = query;
+    }
+
+    @Override
+    public String getParameter(String name) {
+      return "query".equals(name) ? query : super.getParameter(name);
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+      return "query".equals(name) ? new String[]{query} : super.getParameterValues(name);
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+      Map<String, String[]> parameters = new LinkedHashMap<>(super.getParameterMap());
+      parameters.put("query", new String[]{query});
+      return Collections.unmodifiableMap(parameters);
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+      return Collections.enumeration(getParameterMap().keySet());
+    }
+  }
+
+  /**
+   * A {@code POST} request with a body that has already been read, or rewritten with the persisted query.
+   */
+  private static class BodyRequest extends HttpServletRequestWrapper {
+
+    private final byte[] body;
+
+    BodyRequest(HttpServletRequest request, byte[] body) {
+      super(request);
+      this.body = body;
+    }
+
+    @Override
+    public int getContentLength() {
+      return body.length;
+    }
+
+    @Override
+    public long getContentLengthLong() {
+      return body.length;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+      ByteArrayInputStream in = new ByteArrayInputStream(body);
+      return new ServletInputStream() {
+        @Override
+        public boolean isFinished() {
+          return in.available() == 0;
+        }
+
+        @Override
+        public boolean isReady() {
+          return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+          // The whole body is already in memory
+          try {
+            readListener.onDataAvailable();
+            readListener.onAllDataRead();
+          } catch (IOException e) {
+            readListener.onError(e);
+          }
+        }
+
+        @Override
+        public int read() {
+          return in.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+          return in.read(b, off, len);
+        }
+      };
+    }
+
+    @Override
+    public BufferedReader getReader() {
+      return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body), UTF_8));
+    }
+  }
+}
@@ -18,11 +18,10 @@ package com.github.graphql.server.benchmark.springboot;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
 
 import java.sql.JDBCType;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,28 +33,60 @@ public class PostDao {
   @Autowired
   JdbcTemplate jdbcTemplate;
 
-  public List<Post> findPosts() {
-    return jdbcTemplate.query("select * from posts", this::toPost);
+  @Autowired(required = false)
+  InMemoryData inMemoryData;
+
+  public List<Post> findPosts(List<String> columns) {
+    if (inMemoryData != null) {
+      return inMemoryData.findPosts();
+    }
+    return jdbcTemplate.query(postsSql(columns), postMapper(columns));
   }
 
-  public List<Post> findByAuthorId(Integer authorId) {
+  public List<Post> findByAuthorId(Integer authorId, List<String> columns) {
+    if (inMemoryData != null) {
+      return inMemoryData.findPostsByAuthorId(authorId);
+    }
     return jdbcTemplate.query(
-      "select * from posts where author_id = ?",
+      postsByAuthorSql(columns),
       ps -> ps.setInt(1, authorId),
-      this::toPost
+      postMapper(columns)
     );
   }
 
-  public Map<Integer, Post> findPosts(Set<Integer> keys) {
+  public Map<Integer, Post> findPosts(Set<Integer> keys, List<String> columns) {
+    if (inMemoryData != null) {
+      return inMemoryData.findPosts(keys);
+    }
     Integer[] array = keys.toArray(new Integer[0]);
     return jdbcTemplate.query(
-      "select * from posts where id = any(?)",
+      postsByIdsSql(columns),
       ps -> ps.setArray(1, ps.getConnection().createArrayOf(JDBCType.INTEGER.getName(), array)),
-      this::toPost
+      postMapper(columns)
     ).stream().collect(HashMap::new, (map, post) -> map.put(post.getId(), post), HashMap::putAll);
   }
 
-  private Post toPost(ResultSet rs, int idx) throws SQLException {
-    return new Post(rs.getInt("id"), rs.getInt("author_id"), rs.getString("title"), rs.getString("content"));
+  static String postsSql(List<String> columns) {
+    return "select " + Projection.select(columns) + " from posts";
+  }
+
+  static String postsByAuthorSql(List<String> columns) {
+    return postsSql(columns) + " where author_id = ?";
+  }
+
+  static String postsByIdsSql(List<String> columns) {
+    return postsSql(columns) + " where id = any(?)";
+  }
+
+  private RowMapper<Post> postMapper(List<String> columns) {
+    boolean authorId = columns.contains("author_id");
+    boolean title = columns.contains("title");
+    boolean content = columns.contains("content");
+    return (rs, idx) -> new Post(
+      rs.getInt("id"),
+      authorId ? rs.getInt("author_id") : 0,
+      title ? rs.getString("title") : null,
+      content ? rs.getString("content") : null
+    );
   }
 }
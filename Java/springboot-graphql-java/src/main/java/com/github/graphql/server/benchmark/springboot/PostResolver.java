@@ -31,12 +31,12 @@ public class PostResolver implements GraphQLResolver<Post> {
   @Autowired
   AuthorDao authorDao;
 
-  public Author getAuthor(Post post, DataFetchingEnvironment env) {
+  public CompletableFuture<Author> getAuthor(Post post, DataFetchingEnvironment env) {
     return authorDao.findById(post.getAuthorId(), env);
   }
 
   public CompletableFuture<List<Comment>> getComments(Post post, DataFetchingEnvironment env) {
     DataLoader<Integer, List<Comment>> comment = env.getDataLoader("comment");
-    return comment.load(post.getId());
+    return Projection.loadComments(env, comment, post.getId());
   }
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.springboot;
+
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.DataFetchingFieldSelectionSet;
+import graphql.servlet.GraphQLContext;
+import org.dataloader.BatchLoaderEnvironment;
+import org.dataloader.DataLoader;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Derives SQL column lists from GraphQL selection sets, so that only the columns needed by the requested fields are read.
+ * <p>
+ * The key columns ({@code posts.id} and {@code comments.post_id}) are always selected, nested resolvers and DataLoaders rely on them.
+ * <p>
+ * DataLoaders keep a single context per key in a batch, so loads of the same key with different selections must share
+ * it: the key context is the set of columns selected by all the loads of the key during the request. Without a servlet
+ * request to hold them, key contexts hold all the columns. DataLoaders also cache the row of a key for the request, so a
+ * load which selects columns missing from the key context reloads the key, with all the columns selected so far.
+ */
+public class Projection {
+
+  private static final Map<String, String> POST_COLUMNS = new LinkedHashMap<>();
+  private static final Map<String, String> COMMENT_COLUMNS = new LinkedHashMap<>();
+  private static final String KEY_CONTEXTS = Projection.class.getName() + ".keyContexts";
+
+  static {
+    POST_COLUMNS.put("author", "author_id");
+    POST_COLUMNS.put("title", "title");
+    POST_COLUMNS.put("content", "content");
+    COMMENT_COLUMNS.put("author", "author_id");
+    COMMENT_COLUMNS.put("content", "content");
+  }
+
+  private Projection() {
+  }
+
+  public static void start(HttpServletRequest request) {
+    // Resolvers of a request may run concurrently
+    request.setAttribute(KEY_CONTEXTS, new ConcurrentHashMap<String, Set<String>>());
+  }
+
+  public static List<String> postColumns(DataFetchingFieldSelectionSet selectionSet) {
+    return columns("id", POST_COLUMNS, Collections.singletonList(selectionSet));
+  }
+
+  public static List<String> postColumns(BatchLoaderEnvironment env) {
+    return columns("id", POST_COLUMNS, env);
+  }
+
+  public static <V> CompletableFuture<V> loadPost(DataFetchingEnvironment env, DataLoader<Integer, V> dataLoader, Integer postId) {
+    return load(env, dataLoader, "post:", postId, POST_COLUMNS, postColumns(env.getSelectionSet()));
+  }
+
+  public static List<String> commentColumns(DataFetchingFieldSelectionSet selectionSet) {
+    return columns("post_id", COMMENT_COLUMNS, Collections.singletonList(selectionSet));
+  }
+
+  public static List<String> commentColumns(BatchLoaderEnvironment env) {
+    return columns("post_id", COMMENT_COLUMNS, env);
+  }
+
+  public static <V> CompletableFuture<V> loadComments(DataFetchingEnvironment env, DataLoader<Integer, V> dataLoader, Integer postId) {
+    return load(env, dataLoader, "comment:", postId, COMMENT_COLUMNS, commentColumns(env.getSelectionSet()));
+  }
+
+  public static String select(List<String> columns) {
+    return String.join(", ", columns);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <V> CompletableFuture<V> load(DataFetchingEnvironment env, DataLoader<Integer, V> dataLoader, String prefix, Integer key, Map<String, String> mapping, List<String> columns) {
+    Map<String, Set<String>> keyContexts = null;
+    Object context = env.getContext();
+    if (context instanceof GraphQLContext) {
+      keyContexts = ((GraphQLContext) context).getHttpServletRequest()
+        .map(request -> (Map<String, Set<String>>) request.getAttribute(KEY_CONTEXTS))
+        .orElse(null);
+    }
+    if (keyContexts == null) {
+      return dataLoader.load(key, new HashSet<>(mapping.values()));
+    }
+    Set<String> keyContext = keyContexts.computeIfAbsent(prefix + key, k -> ConcurrentHashMap.newKeySet());
+    // A concurrent load must not get the cached row between the new columns and the reload
+    synchronized (keyContext) {
+      if (keyContext.addAll(columns)) {
+        // The cached row, if any, lacks some of the columns
+        dataLoader.clear(key);
+      }
+      return dataLoader.load(key, keyContext);
+    }
+  }
+
+  private static List<String> columns(String keyColumn, Map<String, String> mapping, BatchLoaderEnvironment env) {
+    Set<String> selected = new HashSet<>();
+    for (Object keyContext : env.getKeyContexts().values()) {
+      for (Object column : (Set<?>) keyContext) {
+        selected.add((String) column);
+      }
+    }
+    List<String> columns = new ArrayList<>(mapping.size() + 1);
+    columns.add(keyColumn);
+    for (String column : mapping.values()) {
+      if (selected.contains(column)) {
+        columns.add(column);
+      }
+    }
+    return columns;
+  }
+
+  private static List<String> columns(String keyColumn, Map<String, String> mapping, List<DataFetchingFieldSelectionSet> selectionSets) {
+    List<String> columns = new ArrayList<>(mapping.size() + 1);
+    columns.add(keyColumn);
+    for (Map.Entry<String, String> entry : mapping.entrySet()) {
+      for (DataFetchingFieldSelectionSet selectionSet : selectionSets) {
+        if (selectionSet.contains(entry.getKey())) {
+          columns.add(entry.getValue());
+          break;
+        }
+      }
+    }
+    return columns;
+  }
+}
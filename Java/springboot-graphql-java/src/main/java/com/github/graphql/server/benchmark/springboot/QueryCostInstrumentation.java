@@ -0,0 +1,129 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.springboot;
+
+import graphql.ExecutionResult;
+import graphql.analysis.QueryTraverser;
+import graphql.analysis.QueryVisitorFieldEnvironment;
+import graphql.analysis.QueryVisitorStub;
+import graphql.execution.AbortExecutionException;
+import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.SimpleInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.schema.GraphQLTypeUtil;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Estimates the cost of an operation before it is executed, and aborts it if it is over budget.
+ * <p>
+ * A field costs {@code queryCost.dataSourceCost} if it is resolved with a database query or a backend call, {@code 1} otherwise.
+ * The cost of the selection under a list field is multiplied by {@code queryCost.listSize}, the expected number of items.
+ * <p>
+ * The check is done when the operation starts, instead of after validation, so that documents from the {@link DocumentCache} are checked as well.
+ */
+@Component
+@ConditionalOnProperty(name = "queryCost.enabled", havingValue = "true")
+public class QueryCostInstrumentation extends SimpleInstrumentation {
+
+  // Fields resolved with a database query or a backend call
+  private static final Set<String> DATA_SOURCE_FIELDS = new HashSet<>(Arrays.asList(
+    "Query.posts", "Query.author",
+    "Post.author", "Post.comments",
+    "Author.posts", "Author.comments",
+    "Comment.author", "Comment.post"
+  ));
+
+  @Autowired
+  Environment env;
+
+  @Autowired
+  MeterRegistry meterRegistry;
+
+  int maxCost;
+  int maxDepth;
+  int listSize;
+  int dataSourceCost;
+  DistributionSummary costSummary;
+
+  @PostConstruct
+  void init() {
+    maxCost = env.getProperty("queryCost.maxCost", Integer.class, 5000);
+    maxDepth = env.getProperty("queryCost.maxDepth", Integer.class, 10);
+    listSize = env.getProperty("queryCost.listSize", Integer.class, 10);
+    dataSourceCost = env.getProperty("queryCost.dataSourceCost", Integer.class, 10);
+    costSummary = DistributionSummary.builder("graphql.query.cost")
+      .description("Estimated cost of GraphQL operations")
+      .publishPercentileHistogram()
+      .register(meterRegistry);
+  }
+
+  @Override
+  public InstrumentationContext<ExecutionResult> beginExecuteOperation(InstrumentationExecuteOperationParameters parameters) {
+    ExecutionContext executionContext = parameters.getExecutionContext();
+    QueryTraverser queryTraverser = QueryTraverser.newQueryTraverser()
+      .schema(executionContext.getGraphQLSchema())
+      .document(executionContext.getDocument())
+      .operationName(executionContext.getOperationDefinition().getName())
+      .variables(executionContext.getVariables())
+      .build();
+
+    Map<QueryVisitorFieldEnvironment, Double> childCosts = new HashMap<>();
+    int[] depth = new int[1];
+    queryTraverser.visitPostOrder(new QueryVisitorStub() {
+      @Override
+      public void visitField(QueryVisitorFieldEnvironment env) {
+        String coordinates = GraphQLTypeUtil.unwrapAll(env.getParentType()).getName() + "." + env.getFieldDefinition().getName();
+        double cost = DATA_SOURCE_FIELDS.contains(coordinates) ? dataSourceCost : 1;
+        Double childCost = childCosts.remove(env);
+        if (childCost != null) {
+          cost += GraphQLTypeUtil.isList(GraphQLTypeUtil.unwrapNonNull(env.getFieldDefinition().getType())) ? listSize * childCost : childCost;
+        }
+        childCosts.merge(env.getParentEnvironment(), cost, Double::sum);
+        int fieldDepth = 0;
+        for (QueryVisitorFieldEnvironment e = env; e != null; e = e.getParentEnvironment()) {
+          fieldDepth++;
+        }
+        depth[0] = Math.max(depth[0], fieldDepth);
+      }
+    });
+    double cost = childCosts.getOrDefault(null, 0D);
+
+    costSummary.record(cost);
+    if (depth[0] > maxDepth) {
+      meterRegistry.counter("graphql.query.rejected", "reason", "depth").increment();
+      throw new AbortExecutionException("Query depth " + depth[0] + " exceeds the maximum of " + maxDepth);
+    }
+    if (cost > maxCost) {
+      meterRegistry.counter("graphql.query.rejected", "reason", "cost").increment();
+      throw new AbortExecutionException("Query cost " + (long) cost + " exceeds the maximum of " + maxCost);
+    }
+    return super.beginExecuteOperation(parameters);
+  }
+}
@@ -22,6 +22,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Component
 public class QueryResolver implements GraphQLQueryResolver {
@@ -32,11 +33,15 @@ public class QueryResolver implements GraphQLQueryResolver {
   @Autowired
   AuthorDao authorDao;
 
-  public List<Post> getPosts() {
-    return postDao.findPosts();
+  @Autowired
+  JdbcExecutor jdbcExecutor;
+
+  public CompletableFuture<List<Post>> getPosts(DataFetchingEnvironment env) {
+    List<String> columns = Projection.postColumns(env.getSelectionSet());
+    return jdbcExecutor.supplyAsync("posts", PostDao.postsSql(columns), RequestTrace.of(env.getContext()), () -> postDao.findPosts(columns));
   }
 
-  public Author getAuthor(int authorId, DataFetchingEnvironment env) {
+  public CompletableFuture<Author> getAuthor(int authorId, DataFetchingEnvironment env) {
     return authorDao.findById(authorId, env);
   }
 }
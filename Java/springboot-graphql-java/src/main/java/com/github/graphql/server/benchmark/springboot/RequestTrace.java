@@ -0,0 +1,96 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.springboot;
+
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.servlet.GraphQLContext;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Timings of a traced request, returned under the {@code trace} key of the response extensions.
+ * <p>
+ * Offsets and durations are in nanoseconds, offsets are relative to the start of the request.
+ */
+public class RequestTrace implements InstrumentationState {
+
+  public static final String HEADER = "X-GraphQL-Trace";
+  public static final String KEY = "trace";
+
+  private static final String ATTRIBUTE = RequestTrace.class.getName();
+
+  private final long start = System.nanoTime();
+  private final List<Map<String, Object>> fields = new ArrayList<>();
+  private final List<Map<String, Object>> dataLoaders = new ArrayList<>();
+  private final List<Map<String, Object>> queries = new ArrayList<>();
+  private final List<Map<String, Object>> backendCalls = new ArrayList<>();
+
+  public static RequestTrace of(Object context) {
+    if (context instanceof GraphQLContext) {
+      return ((GraphQLContext) context).getHttpServletRequest()
+        .map(request -> (RequestTrace) request.getAttribute(ATTRIBUTE))
+        .orElse(null);
+    }
+    return null;
+  }
+
+  public static RequestTrace start(HttpServletRequest request) {
+    RequestTrace trace = new RequestTrace();
+    request.setAttribute(ATTRIBUTE, trace);
+    return trace;
+  }
+
+  public synchronized void field(String path, long start, long end) {
+    fields.add(span("path", path, start, end));
+  }
+
+  public synchronized void dataLoader(String name, int keys, long start, long end) {
+    Map<String, Object> span = span("loader", name, start, end);
+    span.put("keys", keys);
+    dataLoaders.add(span);
+  }
+
+  public synchronized void query(String sql, long start, long end) {
+    queries.add(span("sql", sql, start, end));
+  }
+
+  public synchronized void backendCall(String uri, long start, long end) {
+    backendCalls.add(span("uri", uri, start, end));
+  }
+
+  private Map<String, Object> span(String key, String value, long start, long end) {
+    Map<String, Object> span = new LinkedHashMap<>();
+    span.put(key, value);
+    span.put("startOffset", start - this.start);
+    span.put("duration", end - start);
+    return span;
+  }
+
+  public synchronized Map<String, Object> toMap() {
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("duration", System.nanoTime() - start);
+    map.put("fields", new ArrayList<>(fields));
+    map.put("dataLoaders", new ArrayList<>(dataLoaders));
+    map.put("queries", new ArrayList<>(queries));
+    map.put("backendCalls", new ArrayList<>(backendCalls));
+    return map;
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.springboot;
+
+import org.apache.coyote.AbstractProtocol;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs Tomcat request processing, and thus GraphQL execution and the blocking JDBC calls, on virtual threads.
+ * <p>
+ * Requires JDK 21 or later at runtime; the project still compiles for Java 8, so the executor is created reflectively.
+ */
+@Configuration
+@ConditionalOnProperty(name = "virtualThreads.enabled", havingValue = "true")
+public class VirtualThreadsConfiguration {
+
+  @Autowired
+  Environment env;
+
+  @Bean(destroyMethod = "shutdown")
+  public ExecutorService virtualThreadExecutor() {
+    // Read once by the JDK when the first virtual thread is created
+    String tracePinnedThreads = env.getProperty("virtualThreads.tracePinnedThreads");
+    if (tracePinnedThreads != null && !tracePinnedThreads.isEmpty() && System.getProperty("jdk.tracePinnedThreads") == null) {
+      System.setProperty("jdk.tracePinnedThreads", tracePinnedThreads);
+    }
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (NoSuchMethodException e) {
+      throw new IllegalStateException("Virtual threads require JDK 21 or later", e);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Bean
+  public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadsCustomizer(ExecutorService virtualThreadExecutor) {
+    return factory -> factory.addConnectorCustomizers(connector -> {
+      ((AbstractProtocol<?>) connector.getProtocolHandler()).setExecutor(virtualThreadExecutor);
+    });
+  }
+}
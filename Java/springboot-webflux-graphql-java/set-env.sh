@@ -0,0 +1,3 @@
+#!/bin/bash
+
+FRAMEWORK_NAME=springboot-webflux-graphql-java
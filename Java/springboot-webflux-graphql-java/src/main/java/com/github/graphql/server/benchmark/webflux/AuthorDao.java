@@ -0,0 +1,54 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.webflux;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.stream.Collectors.joining;
+
+@Component
+public class AuthorDao {
+
+  @Autowired
+  WebClient.Builder webClientBuilder;
+
+  @Autowired
+  Environment env;
+
+  WebClient webClient;
+
+  @PostConstruct
+  void init() {
+    this.webClient = webClientBuilder.baseUrl(env.getProperty("backend.baseUrl")).build();
+  }
+
+  public Mono<Map<Integer, Author>> findAuthors(Set<Integer> keys) {
+    String ids = keys.stream().map(String::valueOf).collect(joining(","));
+    return webClient.get().uri("/authors?ids={ids}", ids)
+      .retrieve()
+      .bodyToFlux(Author.class)
+      .collectMap(Author::getId);
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.webflux;
+
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.stream.Collectors.groupingBy;
+
+@Component
+public class CommentDao {
+
+  @Autowired
+  Database database;
+
+  public Flux<Comment> findByAuthorId(Integer authorId) {
+    return database.query("select * from comments where author_id = $1", this::toComment, authorId);
+  }
+
+  public Mono<Map<Integer, List<Comment>>> findComments(Set<Integer> keys) {
+    return database.query("select * from comments where post_id = any($1)", this::toComment, (Object) keys.toArray(new Integer[0]))
+      .collect(groupingBy(Comment::getPostId));
+  }
+
+  private Comment toComment(Row row, RowMetadata metadata) {
+    return new Comment(row.get("post_id", Integer.class), row.get("author_id", Integer.class), row.get("content", String.class));
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.webflux;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.postgresql.PostgresqlConnectionConfiguration;
+import io.r2dbc.postgresql.PostgresqlConnectionFactory;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import io.r2dbc.spi.Statement;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.function.BiFunction;
+
+/**
+ * Runs SQL queries on a pool of non-blocking R2DBC Postgres connections.
+ */
+@Component
+public class Database {
+
+  @Autowired
+  Environment env;
+
+  ConnectionPool connectionPool;
+
+  @PostConstruct
+  void init() {
+    PostgresqlConnectionConfiguration configuration = PostgresqlConnectionConfiguration.builder()
+      .host(env.getProperty("postgres.host", "localhost"))
+      .port(env.getProperty("postgres.port", Integer.class, 5432))
+      .username("graphql")
+      .password("graphql")
+      .database("blogdb")
+      .build();
+    int poolSize = env.getProperty("postgres.poolSize", Integer.class, 32);
+    ConnectionPoolConfiguration poolConfiguration = ConnectionPoolConfiguration.builder(new PostgresqlConnectionFactory(configuration))
+      .initialSize(poolSize)
+      .maxSize(poolSize)
+      .build();
+    connectionPool = new ConnectionPool(poolConfiguration);
+  }
+
+  @PreDestroy
+  void close() {
+    connectionPool.dispose();
+  }
+
+  public <T> Flux<T> query(String sql, BiFunction<Row, RowMetadata, T> mapper, Object... params) {
+    return Flux.usingWhen(connectionPool.create(), connection -> {
+      Statement statement = connection.createStatement(sql);
+      for (int i = 0; i < params.length; i++) {
+        statement.bind(i, params[i]);
+      }
+      return Flux.from(statement.execute()).flatMap(result -> result.map(mapper));
+    }, Connection::close);
+  }
+}
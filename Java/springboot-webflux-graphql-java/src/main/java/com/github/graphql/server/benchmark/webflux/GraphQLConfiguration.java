@@ -0,0 +1,110 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.webflux;
+
+import graphql.GraphQL;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import graphql.schema.idl.TypeDefinitionRegistry;
+import org.dataloader.DataLoader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import static graphql.schema.idl.RuntimeWiring.newRuntimeWiring;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+@Configuration
+public class GraphQLConfiguration {
+
+  @Autowired
+  PostDao postDao;
+
+  @Autowired
+  CommentDao commentDao;
+
+  @Autowired
+  DocumentCache documentCache;
+
+  @Bean
+  public GraphQL graphQL() throws IOException {
+    String schema;
+    try (InputStream is = new ClassPathResource("blog.graphqls").getInputStream()) {
+      schema = StreamUtils.copyToString(is, UTF_8);
+    }
+
+    SchemaParser schemaParser = new SchemaParser();
+    TypeDefinitionRegistry typeDefinitionRegistry = schemaParser.parse(schema);
+
+    RuntimeWiring runtimeWiring = newRuntimeWiring()
+      .type("Query", builder -> {
+        return builder
+          .dataFetcher("posts", env -> postDao.findPosts().collectList().toFuture())
+          .dataFetcher("author", env -> {
+            DataLoader<Integer, Author> author = env.getDataLoader("author");
+            return author.load(env.getArgument("id"));
+          });
+      }).type("Post", builder -> {
+        return builder
+          .dataFetcher("author", env -> {
+            Post post = env.getSource();
+            DataLoader<Integer, Author> author = env.getDataLoader("author");
+            return author.load(post.getAuthorId());
+          }).dataFetcher("comments", env -> {
+            Post post = env.getSource();
+            DataLoader<Integer, List<Comment>> comment = env.getDataLoader("comment");
+            return comment.load(post.getId());
+          });
+      }).type("Author", builder -> {
+        return builder
+          .dataFetcher("posts", env -> {
+            Author author = env.getSource();
+            return postDao.findByAuthorId(author.getId()).collectList().toFuture();
+          }).dataFetcher("comments", env -> {
+            Author author = env.getSource();
+            return commentDao.findByAuthorId(author.getId()).collectList().toFuture();
+          });
+      }).type("Comment", builder -> {
+        return builder
+          .dataFetcher("author", env -> {
+            Comment comment = env.getSource();
+            DataLoader<Integer, Author> author = env.getDataLoader("author");
+            return author.load(comment.getAuthorId());
+          }).dataFetcher("post", env -> {
+            Comment comment = env.getSource();
+            DataLoader<Integer, Post> post = env.getDataLoader("post");
+            return post.load(comment.getPostId());
+          });
+      })
+      .build();
+
+    SchemaGenerator schemaGenerator = new SchemaGenerator();
+    GraphQLSchema graphQLSchema = schemaGenerator.makeExecutableSchema(typeDefinitionRegistry, runtimeWiring);
+
+    return GraphQL.newGraphQL(graphQLSchema)
+      .preparsedDocumentProvider(documentCache)
+      .build();
+  }
+}
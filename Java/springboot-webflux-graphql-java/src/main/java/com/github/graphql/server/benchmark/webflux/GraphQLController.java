@@ -0,0 +1,84 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.webflux;
+
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import org.dataloader.DataLoader;
+import org.dataloader.DataLoaderRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+@RestController
+public class GraphQLController {
+
+  @Autowired
+  GraphQL graphQL;
+
+  @Autowired
+  PostDao postDao;
+
+  @Autowired
+  CommentDao commentDao;
+
+  @Autowired
+  AuthorDao authorDao;
+
+  @PostMapping(path = "/graphql", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
+  @SuppressWarnings("unchecked")
+  public Mono<Map<String, Object>> graphql(@RequestBody Map<String, Object> request) {
+    String query = (String) request.get("query");
+    if (query == null) {
+      return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Query is missing"));
+    }
+    Map<String, Object> variables = (Map<String, Object>) request.get("variables");
+    ExecutionInput executionInput = ExecutionInput.newExecutionInput(query)
+      .operationName((String) request.get("operationName"))
+      .variables(variables == null ? Collections.emptyMap() : variables)
+      .dataLoaderRegistry(buildDataLoaderRegistry())
+      .build();
+    return Mono.fromFuture(graphQL.executeAsync(executionInput)).map(ExecutionResult::toSpecification);
+  }
+
+  private DataLoaderRegistry buildDataLoaderRegistry() {
+    DataLoader<Integer, List<Comment>> commentDataLoader = DataLoader.newMappedDataLoader((keys, env) -> {
+      return commentDao.findComments(keys).toFuture();
+    });
+    DataLoader<Integer, Post> postDataLoader = DataLoader.newMappedDataLoader((keys, env) -> {
+      return postDao.findPosts(keys).toFuture();
+    });
+    DataLoader<Integer, Author> authorDataLoader = DataLoader.newMappedDataLoader((keys, env) -> {
+      return authorDao.findAuthors(keys).toFuture();
+    });
+    return new DataLoaderRegistry()
+      .register("comment", commentDataLoader)
+      .register("post", postDataLoader)
+      .register("author", authorDataLoader);
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.webflux;
+
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.Set;
+
+@Component
+public class PostDao {
+
+  @Autowired
+  Database database;
+
+  public Flux<Post> findPosts() {
+    return database.query("select * from posts", this::toPost);
+  }
+
+  public Flux<Post> findByAuthorId(Integer authorId) {
+    return database.query("select * from posts where author_id = $1", this::toPost, authorId);
+  }
+
+  public Mono<Map<Integer, Post>> findPosts(Set<Integer> keys) {
+    return database.query("select * from posts where id = any($1)", this::toPost, (Object) keys.toArray(new Integer[0]))
+      .collectMap(Post::getId);
+  }
+
+  private Post toPost(Row row, RowMetadata metadata) {
+    return new Post(row.get("id", Integer.class), row.get("author_id", Integer.class), row.get("title", String.class), row.get("content", String.class));
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.vertx;
+
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Application-wide cache of backend author profiles, shared by all the verticle instances.
+ * <p>
+ * Loads are non-blocking, so they run on the thread which requested the authors (refreshes included), with the loader
+ * given by the caller: each verticle instance loads with its own web client, and records the calls in its request trace.
+ * Callers must hop back to their own context when the returned future completes.
+ */
+public class AuthorCache implements Shareable {
+
+  private final AsyncLoadingCache<Integer, JsonObject> cache;
+  // The loader of the current lookup, Caffeine only takes one when the cache is built
+  private final ThreadLocal<Function<Set<Integer>, CompletableFuture<Map<Integer, JsonObject>>>> loader = new ThreadLocal<>();
+
+  public AuthorCache(JsonObject config) {
+    Caffeine<Object, Object> builder = Caffeine.newBuilder()
+      .executor(Runnable::run)
+      .maximumSize(config.getLong("maxSize", 10000L))
+      .recordStats();
+    long expireAfterWrite = config.getLong("expireAfterWrite", 60000L);
+    if (expireAfterWrite > 0) {
+      builder.expireAfterWrite(expireAfterWrite, MILLISECONDS);
+    }
+    long refreshAfterWrite = config.getLong("refreshAfterWrite", 0L);
+    if (refreshAfterWrite > 0) {
+      builder.refreshAfterWrite(refreshAfterWrite, MILLISECONDS);
+    }
+    cache = builder.buildAsync(new AsyncCacheLoader<Integer, JsonObject>() {
+      @Override
+      public CompletableFuture<JsonObject> asyncLoad(Integer key, Executor executor) {
+        return load(Collections.singleton(key)).thenApply(authors -> authors.get(key));
+      }
+
+      @Override
+      public CompletableFuture<Map<Integer, JsonObject>> asyncLoadAll(Iterable<? extends Integer> keys, Executor executor) {
+        Set<Integer> set = new HashSet<>();
+        keys.forEach(set::add);
+        return load(set);
+      }
+    });
+  }
+
+  /**
+   * @param loader loads the authors which are missing or due for a refresh, it is called on the current thread, or not at all
+   */
+  public CompletableFuture<Map<Integer, JsonObject>> getAll(Set<Integer> authorIds, Function<Set<Integer>, CompletableFuture<Map<Integer, JsonObject>>> loader) {
+    this.loader.set(loader);
+    try {
+      return cache.getAll(authorIds);
+    } finally {
+      this.loader.remove();
+    }
+  }
+
+  private CompletableFuture<Map<Integer, JsonObject>> load(Set<Integer> authorIds) {
+    Function<Set<Integer>, CompletableFuture<Map<Integer, JsonObject>>> current = loader.get();
+    if (current == null) {
+      CompletableFuture<Map<Integer, JsonObject>> future = new CompletableFuture<>();
+      future.completeExceptionally(new IllegalStateException("Authors loaded outside of a lookup"));
+      return future;
+    }
+    return current.apply(authorIds);
+  }
+
+  public JsonObject stats() {
+    CacheStats stats = cache.synchronous().stats();
+    return new JsonObject()
+      .put("size", cache.synchronous().estimatedSize())
+      .put("hits", stats.hitCount())
+      .put("misses", stats.missCount())
+      .put("hitRatio", stats.hitRate())
+      .put("loads", stats.loadCount())
+      .put("loadFailures", stats.loadFailureCount())
+      .put("averageLoadMillis", stats.averageLoadPenalty() / 1000000)
+      .put("evictions", stats.evictionCount());
+  }
+}
@@ -0,0 +1,502 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.github.graphql.server.benchmark.vertx;
+
+import graphql.Directives;
+import graphql.schema.DataFetcher;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.*;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.predicate.ResponsePredicate;
+import io.vertx.ext.web.codec.BodyCodec;
+import io.vertx.ext.web.handler.graphql.VertxPropertyDataFetcher;
+import io.vertx.pgclient.PgPool;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.SqlResult;
+import io.vertx.sqlclient.Tuple;
+import org.dataloader.BatchLoaderEnvironment;
+import org.dataloader.DataLoader;
+import org.dataloader.DataLoaderOptions;
+import org.dataloader.DataLoaderRegistry;
+import org.dataloader.MappedBatchLoaderWithContext;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collector;
+
+import static graphql.schema.idl.RuntimeWiring.newRuntimeWiring;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.stream.Collectors.*;
+
+/**
+ * The blog schema, wired to its data sources, and the DataLoaders of each request.
+ * <p>
+ * Data comes from Postgres and the backend, through the data and author caches when they are given, or from in-memory
+ * tables. Each {@link ServerVerticle} instance has its own, and the JMH benchmarks use one over in-memory tables.
+ */
+public class BlogSchema {
+
+  private final Vertx vertx;
+  private final WebClient webClient;
+  private final PgPool pgClient;
+  private final DataCache dataCache;
+  private final AuthorCache authorCache;
+  private final InMemoryData inMemoryData;
+  private final long inMemoryDelay;
+  private final MeterRegistry meterRegistry;
+  private final Timer backendTimer;
+  private final Map<String, Timer> queryTimers = new ConcurrentHashMap<>();
+  private final boolean planner;
+  private final int maxPageSize;
+  private final boolean boundedPosts;
+  private final MappedBatchLoaderWithContext<Integer, JsonArray> commentBatchLoader;
+  private final MappedBatchLoaderWithContext<Integer, JsonObject> postBatchLoader;
+  private final MappedBatchLoaderWithContext<Integer, JsonObject> authorBatchLoader;
+
+  /**
+   * @param dataCache the data cache, or {@code null}
+   * @param authorCache the author cache, or {@code null}
+   * @param inMemoryData the in-memory tables, or {@code null} to use Postgres and the backend
+   */
+  public BlogSchema(Vertx vertx, JsonObject config, MeterRegistry meterRegistry, WebClient webClient, PgPool pgClient,
+                    DataCache dataCache, AuthorCache authorCache, InMemoryData inMemoryData) {
+    this.vertx = vertx;
+    this.meterRegistry = meterRegistry;
+    this.webClient = webClient;
+    this.pgClient = pgClient;
+    this.dataCache = dataCache;
+    this.authorCache = authorCache;
+    this.inMemoryData = inMemoryData;
+    inMemoryDelay = config.getJsonObject("inMemory", new JsonObject()).getLong("delay", 0L);
+    planner = config.getBoolean("planner", false);
+    JsonObject pagination = config.getJsonObject("pagination", new JsonObject());
+    maxPageSize = pagination.getInteger("maxPageSize", 100);
+    boundedPosts = pagination.getBoolean("boundedPosts", false);
+    backendTimer = Timer.builder("backend.request")
+      .tag("uri", "/authors")
+      .publishPercentileHistogram()
+      .register(meterRegistry);
+    commentBatchLoader = timedBatchLoader("comment", (keys, env) -> toCompletableFuture(findComments(keys, env)));
+    postBatchLoader = timedBatchLoader("post", (keys, env) -> toCompletableFuture(findPosts(keys, env)));
+    authorBatchLoader = timedBatchLoader("author", (keys, env) -> toCompletableFuture(findAuthors(keys, env.getContext())));
+  }
+
+  /**
+   * @param defer whether fields may be marked with {@code @defer}
+   */
+  public GraphQLSchema schema(boolean defer) {
+    String schema = vertx.fileSystem().readFileBlocking("blog.graphqls").toString();
+
+    SchemaParser schemaParser = new SchemaParser();
+    TypeDefinitionRegistry typeDefinitionRegistry = schemaParser.parse(schema);
+
+    RuntimeWiring runtimeWiring = newRuntimeWiring()
+      .wiringFactory(new WiringFactory() {
+        @Override
+        public DataFetcher getDefaultDataFetcher(FieldWiringEnvironment environment) {
+          return new VertxPropertyDataFetcher(environment.getFieldDefinition().getName());
+        }
+      })
+      .type("Query", builder -> {
+        return builder
+          .dataFetcher("posts", env -> toCompletableFuture(findPosts(null, env)))
+          .dataFetcher("postsConnection", env -> toCompletableFuture(findPostsConnection(null, env)))
+          .dataFetcher("author", env -> findAuthor(env.getArgument("id"), env));
+      }).type("Post", builder -> {
+        return builder
+          .dataFetcher("author", env -> {
+            JsonObject post = env.getSource();
+            return findAuthor(post.getInteger("author_id"), env);
+          }).dataFetcher("comments", env -> {
+            JsonObject post = env.getSource();
+            JsonArray comments = post.getJsonArray("comments");
+            if (comments != null) {
+              return CompletableFuture.completedFuture(comments);
+            }
+            DataLoader<Integer, JsonArray> comment = env.getDataLoader("comment");
+            return Projection.loadComments(env, comment, post.getInteger("id"));
+          });
+      }).type("Author", builder -> {
+        return builder
+          .dataFetcher("posts", env -> {
+            JsonObject author = env.getSource();
+            return toCompletableFuture(findPosts(author.getInteger("id"), env));
+          }).dataFetcher("postsConnection", env -> {
+            JsonObject author = env.getSource();
+            return toCompletableFuture(findPostsConnection(author.getInteger("id"), env));
+          }).dataFetcher("comments", env -> {
+            JsonObject author = env.getSource();
+            return toCompletableFuture(findComments(author.getInteger("id"), env));
+          });
+      }).type("Comment", builder -> {
+        return builder
+          .dataFetcher("author", env -> {
+            JsonObject comment = env.getSource();
+            return findAuthor(comment.getInteger("author_id"), env);
+          }).dataFetcher("post", env -> {
+            JsonObject comment = env.getSource();
+            DataLoader<Integer, JsonObject> post = env.getDataLoader("post");
+            return Projection.loadPost(env, post, comment.getInteger("post_id"));
+          });
+      })
+      .build();
+
+    SchemaGenerator schemaGenerator = new SchemaGenerator();
+    GraphQLSchema graphQLSchema = schemaGenerator.makeExecutableSchema(typeDefinitionRegistry, runtimeWiring);
+    // The experimental directive is only known to the engine, it must be added to the schema
+    return defer ? GraphQLSchema.newSchema(graphQLSchema).additionalDirective(Directives.DeferDirective).build() : graphQLSchema;
+  }
+
+  /**
+   * @return the DataLoaders of a request, or of the operations of a batch
+   */
+  public DataLoaderRegistry dataLoaderRegistry(RoutingContext rc) {
+    RequestTrace trace = rc.get(RequestTrace.KEY);
+    DataLoaderOptions options = DataLoaderOptions.newOptions().setBatchLoaderContextProvider(() -> trace);
+    DataLoader<Integer, JsonArray> commentDataLoader = DataLoader.newMappedDataLoader(commentBatchLoader, options);
+    DataLoader<Integer, JsonObject> postDataLoader = DataLoader.newMappedDataLoader(postBatchLoader, options);
+    DataLoader<Integer, JsonObject> authorDataLoader = DataLoader.newMappedDataLoader(authorBatchLoader, options);
+    return new DataLoaderRegistry()
+      .register("comment", commentDataLoader)
+      .register("post", postDataLoader)
+      .register("author", authorDataLoader);
+  }
+
+  private <K, V> MappedBatchLoaderWithContext<K, V> timedBatchLoader(String name, MappedBatchLoaderWithContext<K, V> batchLoader) {
+    Timer timer = Timer.builder("dataloader.batch")
+      .tag("loader", name)
+      .publishPercentileHistogram()
+      .register(meterRegistry);
+    DistributionSummary batchSize = DistributionSummary.builder("dataloader.batch.size")
+      .tag("loader", name)
+      .publishPercentileHistogram()
+      .register(meterRegistry);
+    return (keys, env) -> {
+      batchSize.record(keys.size());
+      RequestTrace trace = env.getContext();
+      long start = System.nanoTime();
+      return batchLoader.load(keys, env).whenComplete((result, throwable) -> {
+        long end = System.nanoTime();
+        timer.record(end - start, NANOSECONDS);
+        if (trace != null) {
+          trace.dataLoader(name, keys.size(), start, end);
+        }
+      });
+    };
+  }
+
+  private CompletableFuture<JsonObject> findAuthor(Integer authorId, DataFetchingEnvironment env) {
+    DataLoader<Integer, JsonObject> author = env.getDataLoader("author");
+    return author.load(authorId, env);
+  }
+
+  private Future<Map<Integer, JsonObject>> findAuthors(Set<Integer> authorIds, RequestTrace trace) {
+    if (inMemoryData != null) {
+      return fromMemory(inMemoryData.authors(authorIds));
+    }
+    if (authorCache == null) {
+      return loadAuthors(authorIds, trace);
+    }
+    return onContext(authorCache.getAll(authorIds, ids -> toCompletableFuture(loadAuthors(ids, trace))));
+  }
+
+  private Future<Map<Integer, JsonObject>> loadAuthors(Set<Integer> authorIds, RequestTrace trace) {
+    Promise<HttpResponse<JsonArray>> promise = Promise.promise();
+
+    String ids = authorIds.stream().map(String::valueOf).collect(joining(","));
+    long start = System.nanoTime();
+    webClient.get("/authors")
+      .addQueryParam("ids", ids)
+      .as(BodyCodec.jsonArray())
+      .expect(ResponsePredicate.SC_OK)
+      .send(ar -> {
+        long end = System.nanoTime();
+        backendTimer.record(end - start, NANOSECONDS);
+        if (trace != null) {
+          trace.backendCall("/authors?ids=" + ids, start, end);
+        }
+        promise.handle(ar);
+      });
+
+    return promise.future().map(response -> {
+      JsonArray authors = response.body();
+      Map<Integer, JsonObject> map = new HashMap<>(authors.size());
+      for (int i = 0; i < authors.size(); i++) {
+        JsonObject author = authors.getJsonObject(i);
+        map.put(author.getInteger("id"), author);
+      }
+      return map;
+    });
+  }
+
+  private Future<JsonArray> findPosts(Integer authorId, DataFetchingEnvironment env) {
+    if (inMemoryData != null) {
+      return bounded(fromMemory(authorId == null ? inMemoryData.posts() : inMemoryData.postsByAuthor(authorId)));
+    }
+    if (useDataCache()) {
+      // Comments are cached separately, the planner would bypass the cache
+      RequestTrace trace = trace(env);
+      if (authorId == null) {
+        return bounded(onContext(dataCache.posts(() -> loadRows("posts", "select * from posts", Tuple.tuple(), trace))));
+      }
+      return bounded(onContext(dataCache.postsByAuthor(authorId, id -> loadRows("postsByAuthor", "select * from posts where author_id = $1", Tuple.of(id), trace))));
+    }
+    if (planner && env.getSelectionSet().contains("comments")) {
+      return bounded(findPostsWithComments(authorId, env));
+    }
+    String sql = "select " + Projection.select(Projection.postColumns(env.getSelectionSet()), "") + " from posts";
+    Promise<SqlResult<JsonArray>> promise = Promise.promise();
+    Collector<Row, ?, JsonArray> collector = mapping(Projection::toJson, collectingAndThen(toList(), JsonArray::new));
+    if (authorId == null) {
+      sql += limit();
+      pgClient.preparedQuery(sql, collector, timedQuery("posts", sql, trace(env), promise));
+    } else {
+      sql += " where author_id = $1" + limit();
+      pgClient.preparedQuery(sql, Tuple.of(authorId), collector, timedQuery("postsByAuthor", sql, trace(env), promise));
+    }
+    return bounded(promise.future().map(SqlResult::value));
+  }
+
+  /**
+   * @return the limit of unpaginated {@code posts} queries, one row more than a page to tell they are too large
+   */
+  private String limit() {
+    return boundedPosts ? " limit " + (maxPageSize + 1) : "";
+  }
+
+  /**
+   * Fails unpaginated {@code posts} fields with more posts than a page, when {@code pagination.boundedPosts} is set.
+   */
+  private Future<JsonArray> bounded(Future<JsonArray> posts) {
+    if (!boundedPosts) {
+      return posts;
+    }
+    return posts.compose(array -> {
+      if (array.size() > maxPageSize) {
+        return Future.failedFuture(new IllegalArgumentException("More than " + maxPageSize + " posts, use postsConnection"));
+      }
+      return Future.succeededFuture(array);
+    });
+  }
+
+  private Future<JsonObject> findPostsConnection(Integer authorId, DataFetchingEnvironment env) {
+    int first = env.getArgument("first");
+    if (first < 0 || first > maxPageSize) {
+      return Future.failedFuture(new IllegalArgumentException("first must be between 0 and " + maxPageSize));
+    }
+    String after = env.getArgument("after");
+    Integer afterId = after == null ? null : Connections.id(after);
+    // One more post than requested tells whether there is a next page
+    if (inMemoryData != null) {
+      return fromMemory(Connections.connection(inMemoryData.postsPage(authorId, afterId, first + 1), first));
+    }
+    List<String> conditions = new ArrayList<>(2);
+    Tuple args = Tuple.tuple();
+    if (authorId != null) {
+      args.addInteger(authorId);
+      conditions.add("author_id = $" + args.size());
+    }
+    if (afterId != null) {
+      args.addInteger(afterId);
+      conditions.add("id > $" + args.size());
+    }
+    args.addInteger(first + 1);
+    String sql = "select " + Projection.select(Projection.connectionPostColumns(env.getSelectionSet()), "") + " from posts" +
+      (conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions)) +
+      " order by id limit $" + args.size();
+    Promise<SqlResult<List<JsonObject>>> promise = Promise.promise();
+    Collector<Row, ?, List<JsonObject>> collector = mapping(Projection::toJson, toList());
+    pgClient.preparedQuery(sql, args, collector, timedQuery(authorId == null ? "postsPage" : "postsPageByAuthor", sql, trace(env), promise));
+    return promise.future().map(result -> Connections.connection(result.value(), first));
+  }
+
+  private Future<JsonArray> findPostsWithComments(Integer authorId, DataFetchingEnvironment env) {
+    Promise<SqlResult<JsonArray>> promise = Promise.promise();
+    Collector<Row, ?, JsonArray> collector = mapping(Projection::toJson, collectingAndThen(toList(), JsonArray::new));
+    String postColumns = Projection.select(Projection.postColumns(env.getSelectionSet()), "p.");
+    String comment = Projection.nestedCommentColumns(env.getSelectionSet()).stream()
+      .map(column -> "'" + column + "', c." + column)
+      .collect(joining(", "));
+    String sql = "select " + postColumns + ", " +
+      "coalesce(json_agg(json_build_object(" + comment + ")) filter (where c.post_id is not null), '[]') as comments " +
+      "from posts p left join comments c on c.post_id = p.id ";
+    String groupBy = "group by " + postColumns + limit();
+    if (authorId == null) {
+      sql += groupBy;
+      pgClient.preparedQuery(sql, collector, timedQuery("postsWithComments", sql, trace(env), promise));
+    } else {
+      sql += "where p.author_id = $1 " + groupBy;
+      pgClient.preparedQuery(sql, Tuple.of(authorId), collector, timedQuery("postsWithCommentsByAuthor", sql, trace(env), promise));
+    }
+    return promise.future().map(SqlResult::value);
+  }
+
+  private Future<Map<Integer, JsonObject>> findPosts(Set<Integer> ids, BatchLoaderEnvironment env) {
+    if (inMemoryData != null) {
+      return fromMemory(inMemoryData.posts(ids));
+    }
+    if (useDataCache()) {
+      return onContext(dataCache.posts(ids, missing -> {
+        return loadRows("postsByIds", "select * from posts where id = any($1)", Tuple.of(missing.toArray(new Integer[0])), env.getContext());
+      }));
+    }
+    Promise<SqlResult<Map<Integer, JsonObject>>> promise = Promise.promise();
+    Collector<Row, ?, Map<Integer, JsonObject>> collector = toMap(row -> row.getInteger("id"), Projection::toJson);
+    String sql = "select " + Projection.select(Projection.postColumns(env), "") + " from posts where id = any($1)";
+    pgClient.preparedQuery(sql, Tuple.of(ids.toArray(new Integer[0])), collector, timedQuery("postsByIds", sql, env.getContext(), promise));
+    return promise.future().map(SqlResult::value);
+  }
+
+  private Future<Map<Integer, JsonArray>> findComments(Set<Integer> postIds, BatchLoaderEnvironment env) {
+    if (inMemoryData != null) {
+      return fromMemory(inMemoryData.comments(postIds));
+    }
+    if (useDataCache()) {
+      return onContext(dataCache.comments(postIds, missing -> {
+        return loadRows("commentsByPosts", "select * from comments where post_id = any($1)", Tuple.of(missing.toArray(new Integer[0])), env.getContext());
+      }));
+    }
+    Promise<SqlResult<Map<Integer, JsonArray>>> promise = Promise.promise();
+    Collector<Row, ?, Map<Integer, JsonArray>> collector = groupingBy(
+      row -> row.getInteger("post_id"),
+      mapping(Projection::toJson, collectingAndThen(toList(), JsonArray::new))
+    );
+    String sql = "select " + Projection.select(Projection.commentColumns(env), "") + " from comments where post_id = any($1)";
+    pgClient.preparedQuery(sql, Tuple.of(postIds.toArray(new Integer[0])), collector, timedQuery("commentsByPosts", sql, env.getContext(), promise));
+    return promise.future().map(SqlResult::value);
+  }
+
+  private Future<JsonArray> findComments(Integer authorId, DataFetchingEnvironment env) {
+    if (inMemoryData != null) {
+      return fromMemory(inMemoryData.commentsByAuthor(authorId));
+    }
+    if (useDataCache()) {
+      RequestTrace trace = trace(env);
+      return onContext(dataCache.commentsByAuthor(authorId, id -> loadRows("commentsByAuthor", "select * from comments where author_id = $1", Tuple.of(id), trace)));
+    }
+    Promise<SqlResult<JsonArray>> promise = Promise.promise();
+    Collector<Row, ?, JsonArray> collector = mapping(Projection::toJson, collectingAndThen(toList(), JsonArray::new));
+    String sql = "select " + Projection.select(Projection.commentColumns(env.getSelectionSet()), "") + " from comments where author_id = $1";
+    pgClient.preparedQuery(sql, Tuple.of(authorId), collector, timedQuery("commentsByAuthor", sql, trace(env), promise));
+    return promise.future().map(SqlResult::value);
+  }
+
+  /**
+   * Until changes are notified, the data cache could serve stale rows, so queries go to Postgres.
+   */
+  private boolean useDataCache() {
+    return dataCache != null && dataCache.listening();
+  }
+
+  /**
+   * Loads rows with all their columns, as they are shared by queries with different selections.
+   */
+  private CompletableFuture<JsonArray> loadRows(String name, String sql, Tuple args, RequestTrace trace) {
+    Promise<SqlResult<JsonArray>> promise = Promise.promise();
+    Collector<Row, ?, JsonArray> collector = mapping(Projection::toJson, collectingAndThen(toList(), JsonArray::new));
+    pgClient.preparedQuery(sql, args, collector, timedQuery(name, sql, trace, promise));
+    return toCompletableFuture(promise.future().map(SqlResult::value));
+  }
+
+  private <T> Future<T> fromMemory(T result) {
+    if (inMemoryDelay <= 0) {
+      return Future.succeededFuture(result);
+    }
+    Promise<T> promise = Promise.promise();
+    vertx.setTimer(inMemoryDelay, l -> promise.complete(result));
+    return promise.future();
+  }
+
+  private <T> Handler<AsyncResult<T>> timedQuery(String name, String sql, RequestTrace trace, Handler<AsyncResult<T>> handler) {
+    Timer timer = queryTimers.computeIfAbsent(name, n -> {
+      return Timer.builder("db.query")
+        .tag("query", n)
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+    });
+    long start = System.nanoTime();
+    return ar -> {
+      long end = System.nanoTime();
+      timer.record(end - start, NANOSECONDS);
+      if (trace != null) {
+        trace.query(sql, start, end);
+      }
+      handler.handle(ar);
+    };
+  }
+
+  private static RequestTrace trace(DataFetchingEnvironment env) {
+    RoutingContext rc = env.getContext();
+    return rc.get(RequestTrace.KEY);
+  }
+
+  /**
+   * Shared caches complete futures on the thread of the loader, which may belong to another instance.
+   */
+  private <T> Future<T> onContext(CompletableFuture<T> future) {
+    Context context = vertx.getOrCreateContext();
+    Promise<T> promise = Promise.promise();
+    future.whenComplete((result, throwable) -> {
+      if (Vertx.currentContext() == context) {
+        complete(promise, result, throwable);
+      } else {
+        context.runOnContext(v -> complete(promise, result, throwable));
+      }
+    });
+    return promise.future();
+  }
+
+  private static <T> void complete(Promise<T> promise, T result, Throwable throwable) {
+    if (throwable == null) {
+      promise.complete(result);
+    } else {
+      promise.fail(throwable);
+    }
+  }
+
+  private <T> CompletableFuture<T> toCompletableFuture(Future<T> future) {
+    CompletableFuture<T> cf = new CompletableFuture<>();
+    future.setHandler(ar -> {
+      if (ar.succeeded()) {
+        cf.complete(ar.result());
+      } else {
+        cf.completeExceptionally(ar.cause());
+      }
+    });
+    return cf;
+  }
+}
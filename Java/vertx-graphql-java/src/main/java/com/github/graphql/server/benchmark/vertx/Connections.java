@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.vertx;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Base64;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Relay connections of posts, paginated by keyset on {@code id}: a page holds the first posts with an {@code id}
+ * greater than the one in the {@code after} cursor, so that its cost does not depend on its position.
+ */
+final class Connections {
+
+  private static final String CURSOR_PREFIX = "post:";
+
+  private Connections() {
+    // Utility
+  }
+
+  static String cursor(int id) {
+    return Base64.getEncoder().encodeToString((CURSOR_PREFIX + id).getBytes(UTF_8));
+  }
+
+  /**
+   * @return the post id in the cursor
+   * @throws IllegalArgumentException if the cursor was not built by {@link #cursor(int)}
+   */
+  static int id(String cursor) {
+    try {
+      String decoded = new String(Base64.getDecoder().decode(cursor), UTF_8);
+      if (decoded.startsWith(CURSOR_PREFIX)) {
+        return Integer.parseInt(decoded.substring(CURSOR_PREFIX.length()));
+      }
+    } catch (IllegalArgumentException e) {
+      // Not base64, or not a number
+    }
+    throw new IllegalArgumentException("Invalid cursor: " + cursor);
+  }
+
+  /**
+   * @param posts up to {@code first + 1} posts, ordered by {@code id}: the extra one tells that there is a next page
+   */
+  static JsonObject connection(List<JsonObject> posts, int first) {
+    JsonArray edges = new JsonArray();
+    for (int i = 0; i < Math.min(first, posts.size()); i++) {
+      JsonObject post = posts.get(i);
+      edges.add(new JsonObject().put("cursor", cursor(post.getInteger("id"))).put("node", post));
+    }
+    JsonObject pageInfo = new JsonObject()
+      .put("hasNextPage", posts.size() > first)
+      // Allowed by the Relay specification when paginating forward, it would cost another query
+      .put("hasPreviousPage", false)
+      .put("startCursor", edges.isEmpty() ? null : edges.getJsonObject(0).getString("cursor"))
+      .put("endCursor", edges.isEmpty() ? null : edges.getJsonObject(edges.size() - 1).getString("cursor"));
+    return new JsonObject().put("edges", edges).put("pageInfo", pageInfo);
+  }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.vertx;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+import io.vertx.pgclient.PgConnectOptions;
+import io.vertx.pgclient.pubsub.PgChannel;
+import io.vertx.pgclient.pubsub.PgSubscriber;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Application-wide cache of post and comment rows, shared by all the verticle instances.
+ * <p>
+ * Rows are cached with all their columns, so that any selection can be served from them. The cache is kept coherent by
+ * the triggers of {@code postgres/scripts/98-triggers.sql}, which notify the {@code posts} and {@code comments}
+ * channels of each change: the entries holding the changed rows are invalidated, including entries being loaded.
+ * <p>
+ * The cache must only be used while {@link #listening()}: notifications sent while the subscriber is disconnected are
+ * lost, so all the entries are invalidated when the subscription is lost and when it is restored.
+ * Callers must hop back to their own context when the returned futures complete.
+ */
+public class DataCache implements Shareable {
+
+  private static final String ALL_POSTS = "posts";
+
+  private final AsyncCache<String, JsonArray> postLists;
+  private final AsyncCache<Integer, JsonObject> postsById;
+  private final AsyncCache<Integer, JsonArray> postsByAuthor;
+  private final AsyncCache<Integer, JsonArray> commentsByPost;
+  private final AsyncCache<Integer, JsonArray> commentsByAuthor;
+  private final PgSubscriber subscriber;
+  private final AtomicInteger subscribedChannels = new AtomicInteger();
+  private final LongAdder notifications = new LongAdder();
+
+  public DataCache(Vertx vertx, PgConnectOptions connectOptions, JsonObject config) {
+    long maxSize = config.getLong("maxSize", 10000L);
+    postLists = newCache(1);
+    postsById = newCache(maxSize);
+    postsByAuthor = newCache(maxSize);
+    commentsByPost = newCache(maxSize);
+    commentsByAuthor = newCache(maxSize);
+
+    subscriber = PgSubscriber.subscriber(vertx, connectOptions)
+      .reconnectPolicy(retries -> config.getLong("reconnectInterval", 1000L));
+    subscribe(subscriber.channel("posts"), this::postChanged);
+    subscribe(subscriber.channel("comments"), this::commentChanged);
+    connect(vertx, config.getLong("reconnectInterval", 1000L));
+  }
+
+  private static <K, V> AsyncCache<K, V> newCache(long maxSize) {
+    return Caffeine.newBuilder()
+      .executor(Runnable::run)
+      .maximumSize(maxSize)
+      .recordStats()
+      .buildAsync();
+  }
+
+  private void connect(Vertx vertx, long reconnectInterval) {
+    subscriber.connect(ar -> {
+      if (ar.failed()) {
+        vertx.setTimer(reconnectInterval, l -> connect(vertx, reconnectInterval));
+      }
+    });
+  }
+
+  private void subscribe(PgChannel channel, Function<JsonObject, Void> invalidation) {
+    channel
+      .subscribeHandler(v -> {
+        invalidateAll();
+        subscribedChannels.incrementAndGet();
+      })
+      .endHandler(v -> {
+        subscribedChannels.decrementAndGet();
+        invalidateAll();
+      })
+      .handler(payload -> {
+        notifications.increment();
+        JsonObject change;
+        try {
+          change = new JsonObject(payload);
+        } catch (DecodeException e) {
+          change = new JsonObject();
+        }
+        invalidation.apply(change);
+      });
+  }
+
+  /**
+   * @return whether changes are being notified, i.e. whether the cache can be used
+   */
+  public boolean listening() {
+    return subscribedChannels.get() == 2;
+  }
+
+  private Void postChanged(JsonObject change) {
+    Integer id = change.getInteger("id");
+    Integer authorId = change.getInteger("author_id");
+    postLists.synchronous().invalidateAll();
+    if (id == null || authorId == null) {
+      // Truncated table
+      postsById.synchronous().invalidateAll();
+      postsByAuthor.synchronous().invalidateAll();
+    } else {
+      postsById.synchronous().invalidate(id);
+      postsByAuthor.synchronous().invalidate(authorId);
+    }
+    return null;
+  }
+
+  private Void commentChanged(JsonObject change) {
+    Integer postId = change.getInteger("post_id");
+    Integer authorId = change.getInteger("author_id");
+    if (postId == null || authorId == null) {
+      commentsByPost.synchronous().invalidateAll();
+      commentsByAuthor.synchronous().invalidateAll();
+    } else {
+      commentsByPost.synchronous().invalidate(postId);
+      commentsByAuthor.synchronous().invalidate(authorId);
+    }
+    return null;
+  }
+
+  private void invalidateAll() {
+    postLists.synchronous().invalidateAll();
+    postsById.synchronous().invalidateAll();
+    postsByAuthor.synchronous().invalidateAll();
+    commentsByPost.synchronous().invalidateAll();
+    commentsByAuthor.synchronous().invalidateAll();
+  }
+
+  public CompletableFuture<JsonArray> posts(Supplier<CompletableFuture<JsonArray>> loader) {
+    return postLists.get(ALL_POSTS, (key, executor) -> loader.get());
+  }
+
+  public CompletableFuture<JsonArray> postsByAuthor(Integer authorId, Function<Integer, CompletableFuture<JsonArray>> loader) {
+    return postsByAuthor.get(authorId, (key, executor) -> loader.apply(key));
+  }
+
+  public CompletableFuture<JsonArray> commentsByAuthor(Integer authorId, Function<Integer, CompletableFuture<JsonArray>> loader) {
+    return commentsByAuthor.get(authorId, (key, executor) -> loader.apply(key));
+  }
+
+  /**
+   * @param loader loads the rows of the posts with the given ids
+   */
+  public CompletableFuture<Map<Integer, JsonObject>> posts(Set<Integer> ids, Function<Set<Integer>, CompletableFuture<JsonArray>> loader) {
+    return getAll(postsById, ids, loader, rows -> {
+      Map<Integer, JsonObject> posts = new HashMap<>();
+      for (int i = 0; i < rows.size(); i++) {
+        JsonObject post = rows.getJsonObject(i);
+        posts.put(post.getInteger("id"), post);
+      }
+      return posts;
+    }, null);
+  }
+
+  /**
+   * @param loader loads the rows of the comments of the posts with the given ids
+   */
+  public CompletableFuture<Map<Integer, JsonArray>> comments(Set<Integer> postIds, Function<Set<Integer>, CompletableFuture<JsonArray>> loader) {
+    return getAll(commentsByPost, postIds, loader, rows -> {
+      Map<Integer, JsonArray> comments = new HashMap<>();
+      for (int i = 0; i < rows.size(); i++) {
+        JsonObject comment = rows.getJsonObject(i);
+        comments.computeIfAbsent(comment.getInteger("post_id"), k -> new JsonArray()).add(comment);
+      }
+      return comments;
+    }, new JsonArray());
+  }
+
+  /**
+   * Loads the missing keys with a single query. Futures are cached before the query is sent, so that an invalidation
+   * during the query discards its result, and concurrent requests for the same keys wait for it.
+   */
+  private static <V> CompletableFuture<Map<Integer, V>> getAll(AsyncCache<Integer, V> cache, Set<Integer> keys,
+                                                               Function<Set<Integer>, CompletableFuture<JsonArray>> loader,
+                                                               Function<JsonArray, Map<Integer, V>> grouping, V missing) {
+    Map<Integer, CompletableFuture<V>> futures = new HashMap<>(keys.size());
+    Map<Integer, CompletableFuture<V>> loading = new HashMap<>();
+    for (Integer key : keys) {
+      CompletableFuture<V> future = cache.getIfPresent(key);
+      if (future == null) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        future = cache.asMap().putIfAbsent(key, created);
+        if (future == null) {
+          future = created;
+          loading.put(key, created);
+        }
+      }
+      futures.put(key, future);
+    }
+    if (!loading.isEmpty()) {
+      loader.apply(new HashSet<>(loading.keySet())).whenComplete((rows, throwable) -> {
+        if (throwable != null) {
+          loading.values().forEach(future -> future.completeExceptionally(throwable));
+        } else {
+          Map<Integer, V> values = grouping.apply(rows);
+          loading.forEach((key, future) -> future.complete(values.getOrDefault(key, missing)));
+        }
+      });
+    }
+    return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).thenApply(v -> {
+      Map<Integer, V> result = new HashMap<>(futures.size());
+      futures.forEach((key, future) -> {
+        V value = future.join();
+        if (value != null) {
+          result.put(key, value);
+        }
+      });
+      return result;
+    });
+  }
+
+  public JsonObject stats() {
+    return new JsonObject()
+      .put("listening", listening())
+      .put("notifications", notifications.sum())
+      .put("postLists", stats(postLists))
+      .put("postsById", stats(postsById))
+      .put("postsByAuthor", stats(postsByAuthor))
+      .put("commentsByPost", stats(commentsByPost))
+      .put("commentsByAuthor", stats(commentsByAuthor));
+  }
+
+  private static JsonObject stats(AsyncCache<?, ?> cache) {
+    CacheStats stats = cache.synchronous().stats();
+    return new JsonObject()
+      .put("size", cache.synchronous().estimatedSize())
+      .put("hits", stats.hitCount())
+      .put("misses", stats.missCount())
+      .put("evictions", stats.evictionCount());
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.vertx;
+
+import graphql.DeferredExecutionResult;
+import graphql.ExecutionResult;
+import graphql.ExecutionResultImpl;
+import graphql.GraphQL;
+import graphql.GraphQLError;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Helpers for the results of fields marked with {@code @defer}, which GraphQL Java publishes in the
+ * {@value GraphQL#DEFERRED_RESULTS} extension of the initial result.
+ * <p>
+ * Deferred results are published on the threads which complete their data fetchers.
+ */
+final class DeferredResults {
+
+  private DeferredResults() {
+    // Utility
+  }
+
+  @SuppressWarnings("unchecked")
+  static Publisher<DeferredExecutionResult> publisher(ExecutionResult result) {
+    Map<Object, Object> extensions = result.getExtensions();
+    return extensions == null ? null : (Publisher<DeferredExecutionResult>) extensions.get(GraphQL.DEFERRED_RESULTS);
+  }
+
+  /**
+   * @return the specification of the initial result, without the publisher
+   */
+  static Map<String, Object> initialResult(ExecutionResult result) {
+    Map<String, Object> specification = result.toSpecification();
+    Map<Object, Object> extensions = new LinkedHashMap<>(result.getExtensions());
+    extensions.remove(GraphQL.DEFERRED_RESULTS);
+    if (extensions.isEmpty()) {
+      specification.remove("extensions");
+    } else {
+      specification.put("extensions", extensions);
+    }
+    return specification;
+  }
+
+  static void subscribe(Publisher<DeferredExecutionResult> publisher, Consumer<DeferredExecutionResult> onNext, Consumer<Throwable> onEnd) {
+    publisher.subscribe(new Subscriber<DeferredExecutionResult>() {
+      @Override
+      public void onSubscribe(Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+      }
+
+      @Override
+      public void onNext(DeferredExecutionResult deferredResult) {
+        onNext.accept(deferredResult);
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+        onEnd.accept(throwable);
+      }
+
+      @Override
+      public void onComplete() {
+        onEnd.accept(null);
+      }
+    });
+  }
+
+  /**
+   * Waits for the deferred results and sets them in the data of the initial result, for clients which do not accept
+   * incremental delivery.
+   */
+  static CompletableFuture<ExecutionResult> merge(ExecutionResult result, Publisher<DeferredExecutionResult> publisher) {
+    CompletableFuture<ExecutionResult> future = new CompletableFuture<>();
+    List<DeferredExecutionResult> deferredResults = new ArrayList<>();
+    subscribe(publisher, deferredResult -> {
+      synchronized (deferredResults) {
+        deferredResults.add(deferredResult);
+      }
+    }, throwable -> {
+      if (throwable != null) {
+        future.completeExceptionally(throwable);
+        return;
+      }
+      Map<String, Object> data = result.getData();
+      List<GraphQLError> errors = new ArrayList<>(result.getErrors());
+      synchronized (deferredResults) {
+        for (DeferredExecutionResult deferredResult : deferredResults) {
+          set(data, deferredResult.getPath(), deferredResult.getData());
+          errors.addAll(deferredResult.getErrors());
+        }
+      }
+      Map<Object, Object> extensions = new LinkedHashMap<>(result.getExtensions());
+      extensions.remove(GraphQL.DEFERRED_RESULTS);
+      future.complete(ExecutionResultImpl.newExecutionResult()
+        .data(data)
+        .errors(errors)
+        .extensions(extensions.isEmpty() ? null : extensions)
+        .build());
+    });
+    return future;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void set(Object data, List<Object> path, Object value) {
+    Object parent = data;
+    for (int i = 0; i < path.size() - 1 && parent != null; i++) {
+      Object segment = path.get(i);
+      parent = segment instanceof Integer ? ((List<Object>) parent).get((Integer) segment) : ((Map<String, Object>) parent).get(segment);
+    }
+    // The parent is null when a non-null error bubbled up past the deferred field
+    if (parent != null) {
+      ((Map<String, Object>) parent).put((String) path.get(path.size() - 1), value);
+    }
+  }
+}
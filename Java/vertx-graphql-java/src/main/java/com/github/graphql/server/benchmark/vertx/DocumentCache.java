@@ -0,0 +1,59 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.vertx;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import graphql.ExecutionInput;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+
+import java.util.function.Function;
+
+/**
+ * Keeps parsed and validated documents, keyed by query text, so that repeated queries skip the parse and validate phases.
+ * <p>
+ * Entries are immutable, so a single instance can be shared by all the verticle instances.
+ */
+public class DocumentCache implements PreparsedDocumentProvider, Shareable {
+
+  private final Cache<String, PreparsedDocumentEntry> cache;
+
+  public DocumentCache(long maxSize) {
+    cache = Caffeine.newBuilder()
+      .maximumSize(maxSize)
+      .recordStats()
+      .build();
+  }
+
+  @Override
+  public PreparsedDocumentEntry getDocument(ExecutionInput executionInput, Function<ExecutionInput, PreparsedDocumentEntry> computeFunction) {
+    return cache.get(executionInput.getQuery(), query -> computeFunction.apply(executionInput));
+  }
+
+  public JsonObject stats() {
+    CacheStats stats = cache.stats();
+    return new JsonObject()
+      .put("size", cache.estimatedSize())
+      .put("hits", stats.hitCount())
+      .put("misses", stats.missCount())
+      .put("evictions", stats.evictionCount());
+  }
+}
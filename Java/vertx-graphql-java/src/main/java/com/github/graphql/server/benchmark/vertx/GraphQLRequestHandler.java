@@ -0,0 +1,531 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.vertx;
+
+import graphql.DeferredExecutionResult;
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.ExecutionResultImpl;
+import graphql.GraphQL;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import org.dataloader.DataLoaderRegistry;
+import org.reactivestreams.Publisher;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Executes GraphQL requests sent with {@code GET} (query parameters) or {@code POST} ({@code application/json} or
+ * {@code application/graphql} body).
+ * <p>
+ * Requires a {@link io.vertx.ext.web.handler.BodyHandler} on the route.
+ * <p>
+ * When a traced instance is provided, requests with the {@value RequestTrace#HEADER} header set to {@code true} are
+ * executed with it, and a {@link RequestTrace} is stored in the routing context.
+ * <p>
+ * When {@link PersistedQueries} are provided, requests may send the hash of a known query instead of its text.
+ * When a {@code Cache-Control} value is provided, successful {@code GET} responses carry it with an {@code ETag}, and
+ * requests with a matching {@code If-None-Match} header get a {@code 304} response.
+ * When a {@link ResponseCache} is provided, untraced requests are served from it, without execution, and successful
+ * responses are stored in it.
+ * <p>
+ * When batching is enabled, a {@code POST} body may hold an array of operations. They are executed concurrently with a
+ * single {@link DataLoaderRegistry}, and the response is the array of their results, in request order or, optionally,
+ * in completion order.
+ * <p>
+ * When an operation has fields marked with {@code @defer}, and the client accepts {@value #MULTIPART_MIXED}, the initial
+ * result and each deferred field are sent as the parts of a chunked {@code multipart/mixed} response, as they complete.
+ * Otherwise, deferred fields are merged into the initial result before it is sent.
+ */
+public class GraphQLRequestHandler implements Handler<RoutingContext> {
+
+  public static final String BATCH_INDEX = "batchIndex";
+  public static final String MULTIPART_MIXED = "multipart/mixed";
+
+  private static final String PART_HEADER = "\r\n---\r\ncontent-type: application/json; charset=utf-8\r\n\r\n";
+  private static final String LAST_BOUNDARY = "\r\n-----\r\n";
+
+  private final GraphQL graphQL;
+  private final GraphQL tracedGraphQL;
+  private final Function<RoutingContext, DataLoaderRegistry> dataLoaderRegistryFactory;
+  private final boolean streamingResponse;
+  private final PersistedQueries persistedQueries;
+  private final String cacheControl;
+  private final ResponseCache responseCache;
+  private final int maxBatchSize;
+  private final boolean completionOrder;
+
+  public GraphQLRequestHandler(GraphQL graphQL, GraphQL tracedGraphQL, Function<RoutingContext, DataLoaderRegistry> dataLoaderRegistryFactory, boolean streamingResponse,
+                               PersistedQueries persistedQueries, String cacheControl, ResponseCache responseCache, int maxBatchSize, boolean completionOrder) {
+    this.graphQL = graphQL;
+    this.tracedGraphQL = tracedGraphQL;
+    this.dataLoaderRegistryFactory = dataLoaderRegistryFactory;
+    this.streamingResponse = streamingResponse;
+    this.persistedQueries = persistedQueries;
+    this.cacheControl = cacheControl;
+    this.responseCache = responseCache;
+    this.maxBatchSize = maxBatchSize;
+    this.completionOrder = completionOrder;
+  }
+
+  @Override
+  public void handle(RoutingContext rc) {
+    ExecutionInput.Builder input = null;
+    JsonArray batch = null;
+    try {
+      HttpMethod method = rc.request().method();
+      if (method == HttpMethod.GET) {
+        input = fromQueryParams(rc.request());
+      } else if (method == HttpMethod.POST && maxBatchSize > 0 && isBatch(rc)) {
+        batch = rc.getBodyAsJsonArray();
+      } else if (method == HttpMethod.POST) {
+        input = fromBody(rc);
+      } else {
+        rc.fail(405);
+        return;
+      }
+    } catch (DecodeException | ClassCastException | IllegalArgumentException e) {
+      rc.fail(400, e);
+      return;
+    } catch (PersistedQueryNotFoundException e) {
+      sendPersistedQueryNotFound(rc.response());
+      return;
+    }
+    if (batch != null) {
+      executeBatch(rc, batch);
+      return;
+    }
+    if (input == null) {
+      rc.response().setStatusCode(400).end("Query is missing");
+      return;
+    }
+    execute(rc, input);
+  }
+
+  private ExecutionInput.Builder fromQueryParams(HttpServerRequest request) {
+    String extensions = request.getParam("extensions");
+    String query = resolveQuery(request.getParam("query"), extensions == null ? null : new JsonObject(extensions));
+    if (query == null) {
+      return null;
+    }
+    String variables = request.getParam("variables");
+    return ExecutionInput.newExecutionInput(query)
+      .operationName(request.getParam("operationName"))
+      .variables(variables == null ? Collections.emptyMap() : new JsonObject(variables).getMap());
+  }
+
+  private ExecutionInput.Builder fromBody(RoutingContext rc) {
+    String contentType = rc.request().getHeader("content-type");
+    if (contentType != null && contentType.startsWith("application/graphql")) {
+      return ExecutionInput.newExecutionInput(rc.getBodyAsString());
+    }
+    JsonObject body = rc.getBodyAsJson();
+    return body == null ? null : fromJson(body);
+  }
+
+  private ExecutionInput.Builder fromJson(JsonObject body) {
+    String query = resolveQuery(body.getString("query"), body.getJsonObject("extensions"));
+    if (query == null) {
+      return null;
+    }
+    JsonObject variables = body.getJsonObject("variables");
+    return ExecutionInput.newExecutionInput(query)
+      .operationName(body.getString("operationName"))
+      .variables(variables == null ? Collections.emptyMap() : variables.getMap());
+  }
+
+  private static boolean isBatch(RoutingContext rc) {
+    String contentType = rc.request().getHeader("content-type");
+    if (contentType != null && contentType.startsWith("application/graphql")) {
+      return false;
+    }
+    Buffer body = rc.getBody();
+    for (int i = 0; body != null && i < body.length(); i++) {
+      byte b = body.getByte(i);
+      if (!Character.isWhitespace(b)) {
+        return b == '[';
+      }
+    }
+    return false;
+  }
+
+  private String resolveQuery(String query, JsonObject extensions) {
+    if (persistedQueries == null) {
+      return query;
+    }
+    String resolved = persistedQueries.resolve(query, extensions);
+    if (resolved == null && extensions != null && extensions.containsKey("persistedQuery")) {
+      throw new PersistedQueryNotFoundException();
+    }
+    return resolved;
+  }
+
+  private void sendPersistedQueryNotFound(HttpServerResponse response) {
+    response
+      .putHeader("content-type", "application/json")
+      // The client registers the query with its next request, which must reach the server
+      .putHeader("cache-control", "no-store")
+      .end(persistedQueryNotFound());
+  }
+
+  private static Buffer persistedQueryNotFound() {
+    return errors(new JsonObject()
+      .put("message", PersistedQueries.NOT_FOUND)
+      .put("extensions", new JsonObject().put("code", "PERSISTED_QUERY_NOT_FOUND")));
+  }
+
+  private static Buffer errors(JsonObject error) {
+    return new JsonObject().put("errors", new JsonArray().add(error)).toBuffer();
+  }
+
+  private GraphQL graphQL(RoutingContext rc) {
+    if (tracedGraphQL != null && "true".equalsIgnoreCase(rc.request().getHeader(RequestTrace.HEADER))) {
+      rc.put(RequestTrace.KEY, new RequestTrace());
+      return tracedGraphQL;
+    }
+    return graphQL;
+  }
+
+  private void execute(RoutingContext rc, ExecutionInput.Builder input) {
+    GraphQL graphQL = graphQL(rc);
+    ExecutionInput executionInput = input.context(rc).build();
+    String cacheKey = null;
+    if (responseCache != null && rc.get(RequestTrace.KEY) == null) {
+      cacheKey = ResponseCache.key(executionInput);
+      Buffer cached = responseCache.get(cacheKey);
+      if (cached != null) {
+        sendCachedResponse(rc, cached);
+        return;
+      }
+      rc.put(ResponseCache.TAGS_KEY, responseCache.newTags());
+    }
+    String key = cacheKey;
+    executionInput = executionInput.transform(builder -> builder.dataLoaderRegistry(dataLoaderRegistryFactory.apply(rc)));
+    onContext(rc, graphQL.executeAsync(executionInput), (result, throwable) -> sendResponse(rc, result, throwable, key));
+  }
+
+  private static <T> void onContext(RoutingContext rc, CompletableFuture<T> future, BiConsumer<T, Throwable> handler) {
+    Context context = rc.vertx().getOrCreateContext();
+    future.whenComplete((result, throwable) -> {
+      if (Vertx.currentContext() == context) {
+        handler.accept(result, throwable);
+      } else {
+        context.runOnContext(v -> handler.accept(result, throwable));
+      }
+    });
+  }
+
+  /**
+   * Operations of a batch share the tags of the request: each response is tagged with the data of the whole batch, which
+   * may invalidate it more often than needed, but never too late.
+   */
+  private void executeBatch(RoutingContext rc, JsonArray operations) {
+    if (operations.isEmpty() || operations.size() > maxBatchSize) {
+      rc.response().setStatusCode(400).end("A batch must hold between 1 and " + maxBatchSize + " operations");
+      return;
+    }
+    GraphQL graphQL = graphQL(rc);
+    boolean useCache = responseCache != null && rc.get(RequestTrace.KEY) == null;
+    if (useCache) {
+      rc.put(ResponseCache.TAGS_KEY, responseCache.newTags());
+    }
+    Context context = rc.vertx().getOrCreateContext();
+    DataLoaderRegistry dataLoaderRegistry = new CoalescingDataLoaderRegistry(dataLoaderRegistryFactory.apply(rc), context);
+    BatchResponse batchResponse = new BatchResponse(rc.response(), operations.size());
+    for (int i = 0; i < operations.size(); i++) {
+      int index = i;
+      ExecutionInput.Builder input;
+      try {
+        input = fromJson(operations.getJsonObject(index));
+      } catch (DecodeException | IllegalArgumentException e) {
+        batchResponse.complete(index, errors(new JsonObject().put("message", "Invalid operation: " + e.getMessage())), true);
+        continue;
+      } catch (ClassCastException e) {
+        batchResponse.complete(index, errors(new JsonObject().put("message", "Invalid operation")), true);
+        continue;
+      } catch (PersistedQueryNotFoundException e) {
+        batchResponse.complete(index, persistedQueryNotFound(), true);
+        continue;
+      }
+      if (input == null) {
+        batchResponse.complete(index, errors(new JsonObject().put("message", "Query is missing")), true);
+        continue;
+      }
+      ExecutionInput executionInput = input.context(rc).build();
+      String cacheKey = null;
+      if (useCache) {
+        cacheKey = ResponseCache.key(executionInput);
+        Buffer cached = responseCache.get(cacheKey);
+        if (cached != null) {
+          batchResponse.complete(index, cached, true);
+          continue;
+        }
+      }
+      String key = cacheKey;
+      executionInput = executionInput.transform(builder -> builder.dataLoaderRegistry(dataLoaderRegistry));
+      onContext(rc, graphQL.executeAsync(executionInput), (result, throwable) -> completeBatchOperation(rc, batchResponse, index, result, throwable, key));
+    }
+  }
+
+  private void completeBatchOperation(RoutingContext rc, BatchResponse batchResponse, int index, ExecutionResult result, Throwable throwable, String cacheKey) {
+    if (throwable != null) {
+      batchResponse.complete(index, errors(new JsonObject().put("message", String.valueOf(throwable.getMessage()))), true);
+      return;
+    }
+    Publisher<DeferredExecutionResult> deferred = DeferredResults.publisher(result);
+    if (deferred != null) {
+      onContext(rc, DeferredResults.merge(result, deferred), (merged, t) -> completeBatchOperation(rc, batchResponse, index, merged, t, cacheKey));
+      return;
+    }
+    Buffer body = completionOrder ? null : encode(result);
+    if (cacheKey != null && result.getErrors().isEmpty()) {
+      // Stored without the batch index, so that it can be served to any request
+      responseCache.put(cacheKey, rc.get(ResponseCache.TAGS_KEY), body != null ? body : encode(result));
+    }
+    if (completionOrder) {
+      body = encode(ExecutionResultImpl.newExecutionResult().from(result).addExtension(BATCH_INDEX, index).build());
+    }
+    batchResponse.complete(index, body, false);
+  }
+
+  private Buffer encode(ExecutionResult result) {
+    if (!streamingResponse) {
+      return Json.encodeToBuffer(result.toSpecification());
+    }
+    ByteBuf byteBuf = JsonResponseWriter.encode(result);
+    try {
+      return Buffer.buffer(ByteBufUtil.getBytes(byteBuf));
+    } finally {
+      byteBuf.release();
+    }
+  }
+
+  private void sendResponse(RoutingContext rc, ExecutionResult result, Throwable throwable, String cacheKey) {
+    if (throwable != null) {
+      rc.fail(throwable);
+      return;
+    }
+    Publisher<DeferredExecutionResult> deferred = DeferredResults.publisher(result);
+    if (deferred != null) {
+      String accept = rc.request().getHeader("accept");
+      if (accept != null && accept.contains(MULTIPART_MIXED)) {
+        sendIncrementally(rc, result, deferred);
+      } else {
+        onContext(rc, DeferredResults.merge(result, deferred), (merged, t) -> sendResponse(rc, merged, t, cacheKey));
+      }
+      return;
+    }
+    HttpServerResponse response = rc.response().putHeader("content-type", "application/json");
+    boolean cacheable = cacheControl != null && rc.request().method() == HttpMethod.GET;
+    boolean hasErrors = !result.getErrors().isEmpty();
+    if (streamingResponse) {
+      ByteBuf byteBuf = JsonResponseWriter.encode(result);
+      if (cacheKey != null && !hasErrors) {
+        responseCache.put(cacheKey, rc.get(ResponseCache.TAGS_KEY), Buffer.buffer(ByteBufUtil.getBytes(byteBuf)));
+      }
+      if (cacheable && notModified(rc.request(), response, hasErrors, byteBuf)) {
+        byteBuf.release();
+        return;
+      }
+      response.end(Buffer.buffer(byteBuf), ar -> byteBuf.release());
+    } else {
+      Buffer body = Json.encodeToBuffer(result.toSpecification());
+      if (cacheKey != null && !hasErrors) {
+        responseCache.put(cacheKey, rc.get(ResponseCache.TAGS_KEY), body);
+      }
+      if (cacheable && notModified(rc.request(), response, hasErrors, body.getByteBuf())) {
+        return;
+      }
+      response.end(body);
+    }
+  }
+
+  /**
+   * Incremental responses are neither cached nor given an {@code ETag}: their parts depend on timing.
+   */
+  private void sendIncrementally(RoutingContext rc, ExecutionResult result, Publisher<DeferredExecutionResult> deferred) {
+    HttpServerResponse response = rc.response()
+      .setChunked(true)
+      .putHeader("content-type", MULTIPART_MIXED + "; boundary=\"-\"")
+      .putHeader("cache-control", "no-store");
+    Map<String, Object> initialResult = DeferredResults.initialResult(result);
+    initialResult.put("hasNext", true);
+    response.write(part(initialResult));
+    Context context = rc.vertx().getOrCreateContext();
+    DeferredResults.subscribe(deferred, deferredResult -> {
+      Map<String, Object> specification = deferredResult.toSpecification();
+      specification.put("hasNext", true);
+      context.runOnContext(v -> {
+        if (!response.closed()) {
+          response.write(part(specification));
+        }
+      });
+    }, throwable -> context.runOnContext(v -> {
+      if (response.closed()) {
+        return;
+      }
+      // The last part only tells that there is nothing more to wait for
+      JsonObject last = new JsonObject().put("hasNext", false);
+      if (throwable != null) {
+        last.put("errors", new JsonArray().add(new JsonObject().put("message", String.valueOf(throwable.getMessage()))));
+      }
+      response.end(part(last.getMap()).appendString(LAST_BOUNDARY));
+    }));
+  }
+
+  private static Buffer part(Map<String, Object> specification) {
+    return Buffer.buffer(PART_HEADER).appendBuffer(Json.encodeToBuffer(specification));
+  }
+
+  private void sendCachedResponse(RoutingContext rc, Buffer body) {
+    HttpServerResponse response = rc.response().putHeader("content-type", "application/json");
+    if (cacheControl != null && rc.request().method() == HttpMethod.GET && notModified(rc.request(), response, false, body.getByteBuf())) {
+      return;
+    }
+    response.end(body);
+  }
+
+  /**
+   * Sets the caching headers of a {@code GET} response, and sends a {@code 304} response if the client has the same body.
+   *
+   * @return whether the response has been sent
+   */
+  private boolean notModified(HttpServerRequest request, HttpServerResponse response, boolean hasErrors, ByteBuf body) {
+    if (hasErrors) {
+      response.putHeader("cache-control", "no-store");
+      return false;
+    }
+    String etag = '"' + Digests.md5(body.nioBuffer()) + '"';
+    response.putHeader("cache-control", cacheControl).putHeader("etag", etag);
+    String ifNoneMatch = request.getHeader("if-none-match");
+    if (ifNoneMatch != null && ifNoneMatch.contains(etag)) {
+      response.headers().remove("content-type");
+      response.setStatusCode(304).end();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Merges the dispatches requested by the operations of a batch during an event loop iteration into one, so that
+   * operations which reach the same level together share batches.
+   */
+  private static class CoalescingDataLoaderRegistry extends DataLoaderRegistry {
+
+    private final Context context;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    CoalescingDataLoaderRegistry(DataLoaderRegistry registry, Context context) {
+      this.context = context;
+      for (String key : registry.getKeys()) {
+        register(key, registry.getDataLoader(key));
+      }
+    }
+
+    @Override
+    public void dispatchAll() {
+      if (scheduled.compareAndSet(false, true)) {
+        context.runOnContext(v -> {
+          scheduled.set(false);
+          super.dispatchAll();
+        });
+      }
+    }
+  }
+
+  /**
+   * Writes the results of a batch as a JSON array, either once all are known, or as they complete. In completion order,
+   * each result carries its position in the batch in the {@value #BATCH_INDEX} extension.
+   */
+  private class BatchResponse {
+
+    final HttpServerResponse response;
+    final Buffer[] bodies;
+    int pending;
+    boolean started;
+
+    BatchResponse(HttpServerResponse response, int size) {
+      this.response = response.putHeader("content-type", "application/json");
+      bodies = new Buffer[size];
+      pending = size;
+      if (completionOrder) {
+        response.setChunked(true);
+      }
+    }
+
+    /**
+     * @param addIndex whether the {@value #BATCH_INDEX} extension must be added to the body, in completion order
+     */
+    void complete(int index, Buffer body, boolean addIndex) {
+      if (response.closed()) {
+        return;
+      }
+      pending--;
+      if (completionOrder) {
+        Buffer chunk = Buffer.buffer(started ? "," : "[").appendBuffer(addIndex ? withIndex(body, index) : body);
+        started = true;
+        if (pending == 0) {
+          response.end(chunk.appendString("]"));
+        } else {
+          response.write(chunk);
+        }
+        return;
+      }
+      bodies[index] = body;
+      if (pending == 0) {
+        Buffer array = Buffer.buffer().appendString("[");
+        for (int i = 0; i < bodies.length; i++) {
+          array.appendString(i == 0 ? "" : ",").appendBuffer(bodies[i]);
+        }
+        response.end(array.appendString("]"));
+      }
+    }
+
+    private Buffer withIndex(Buffer body, int index) {
+      JsonObject json = body.toJsonObject();
+      JsonObject extensions = json.getJsonObject("extensions");
+      if (extensions == null) {
+        json.put("extensions", extensions = new JsonObject());
+      }
+      return json.put("extensions", extensions.put(BATCH_INDEX, index)).toBuffer();
+    }
+  }
+
+  private static class PersistedQueryNotFoundException extends RuntimeException {
+
+    PersistedQueryNotFoundException() {
+      super(PersistedQueries.NOT_FOUND, null, false, false);
+    }
+  }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.vertx;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Blog data loaded from the Postgres data script and the backend data file, in tables indexed by identifier.
+ * <p>
+ * Rows have the same keys as Postgres rows (e.g. {@code author_id}) and authors the same keys as backend responses.
+ * Tables are never modified after loading, so a single instance can be shared by all the verticle instances.
+ */
+public class InMemoryData implements Shareable {
+
+  private static final Pattern INSERT = Pattern.compile("INSERT INTO (\\w+) \\(([^)]*)\\)\\s*VALUES", Pattern.CASE_INSENSITIVE);
+
+  private final JsonArray posts;
+  private final JsonObject[] postsById;
+  private final JsonArray[] postsByAuthor;
+  private final NavigableMap<Integer, JsonObject> postsInIdOrder = new TreeMap<>();
+  private final Map<Integer, NavigableMap<Integer, JsonObject>> postsByAuthorInIdOrder = new HashMap<>();
+  private final JsonArray[] commentsByPost;
+  private final JsonArray[] commentsByAuthor;
+  private final JsonObject[] authorsById;
+
+  public InMemoryData(String dataScript, String authorsData) {
+    this(parseInserts(dataScript), parseAuthors(authorsData));
+  }
+
+  private InMemoryData(Map<String, List<JsonObject>> tables, List<JsonObject> authors) {
+    this(tables.getOrDefault("posts", new ArrayList<>()), tables.getOrDefault("comments", new ArrayList<>()), authors);
+  }
+
+  /**
+   * @param postRows the rows of the {@code posts} table
+   * @param commentRows the rows of the {@code comments} table
+   * @param authors the author profiles, as returned by the backend
+   */
+  public InMemoryData(List<JsonObject> postRows, List<JsonObject> commentRows, List<JsonObject> authors) {
+    int maxPostId = Math.max(maxId(postRows, "id"), maxId(commentRows, "post_id"));
+    int maxAuthorId = Math.max(maxId(authors, "id"), Math.max(maxId(postRows, "author_id"), maxId(commentRows, "author_id")));
+
+    posts = new JsonArray(new ArrayList<>(postRows));
+    postsById = new JsonObject[maxPostId + 1];
+    postsByAuthor = new JsonArray[maxAuthorId + 1];
+    for (JsonObject post : postRows) {
+      postsById[post.getInteger("id")] = post;
+      add(postsByAuthor, post.getInteger("author_id"), post);
+      postsInIdOrder.put(post.getInteger("id"), post);
+      postsByAuthorInIdOrder.computeIfAbsent(post.getInteger("author_id"), id -> new TreeMap<>()).put(post.getInteger("id"), post);
+    }
+    commentsByPost = new JsonArray[maxPostId + 1];
+    commentsByAuthor = new JsonArray[maxAuthorId + 1];
+    for (JsonObject comment : commentRows) {
+      add(commentsByPost, comment.getInteger("post_id"), comment);
+      add(commentsByAuthor, comment.getInteger("author_id"), comment);
+    }
+    authorsById = new JsonObject[maxAuthorId + 1];
+    for (JsonObject author : authors) {
+      authorsById[author.getInteger("id")] = author;
+    }
+  }
+
+  public JsonArray posts() {
+    return posts;
+  }
+
+  public JsonArray postsByAuthor(int authorId) {
+    return orEmpty(get(postsByAuthor, authorId));
+  }
+
+  /**
+   * @param authorId the author of the posts, or {@code null} for all posts
+   * @param afterId the id after which the page starts, or {@code null} for the first page
+   * @return up to {@code limit} posts, in id order
+   */
+  public List<JsonObject> postsPage(Integer authorId, Integer afterId, int limit) {
+    NavigableMap<Integer, JsonObject> posts = authorId == null ? postsInIdOrder : postsByAuthorInIdOrder.getOrDefault(authorId, Collections.emptyNavigableMap());
+    List<JsonObject> page = new ArrayList<>(limit);
+    for (JsonObject post : (afterId == null ? posts : posts.tailMap(afterId, false)).values()) {
+      if (page.size() == limit) {
+        break;
+      }
+      page.add(post);
+    }
+    return page;
+  }
+
+  public Map<Integer, JsonObject> posts(Set<Integer> ids) {
+    return select(postsById, ids);
+  }
+
+  public Map<Integer, JsonArray> comments(Set<Integer> postIds) {
+    // Like the Postgres query, posts without comments are absent from the result
+    return select(commentsByPost, postIds);
+  }
+
+  public JsonArray commentsByAuthor(int authorId) {
+    return orEmpty(get(commentsByAuthor, authorId));
+  }
+
+  public Map<Integer, JsonObject> authors(Set<Integer> ids) {
+    return select(authorsById, ids);
+  }
+
+  private static <T> T get(T[] table, int id) {
+    return id >= 0 && id < table.length ? table[id] : null;
+  }
+
+  private static <T> Map<Integer, T> select(T[] table, Set<Integer> ids) {
+    Map<Integer, T> result = new HashMap<>(ids.size());
+    for (Integer id : ids) {
+      T value = get(table, id);
+      if (value != null) {
+        result.put(id, value);
+      }
+    }
+    return result;
+  }
+
+  private static JsonArray orEmpty(JsonArray array) {
+    return array != null ? array : new JsonArray();
+  }
+
+  private static void add(JsonArray[] table, int id, JsonObject row) {
+    if (table[id] == null) {
+      table[id] = new JsonArray();
+    }
+    table[id].add(row);
+  }
+
+  private static int maxId(List<JsonObject> rows, String key) {
+    return rows.stream().mapToInt(row -> row.getInteger(key)).max().orElse(0);
+  }
+
+  private static List<JsonObject> parseAuthors(String authorsData) {
+    List<JsonObject> authors = new ArrayList<>();
+    for (String line : authorsData.split("\n")) {
+      if (line.trim().isEmpty()) {
+        continue;
+      }
+      String[] split = line.split("\\|");
+      authors.add(new JsonObject()
+        .put("id", Integer.valueOf(split[0].trim()))
+        .put("firstName", split[1].trim())
+        .put("lastName", split[2].trim())
+        .put("bio", split[3].trim()));
+    }
+    return authors;
+  }
+
+  /**
+   * Parses the rows of {@code INSERT INTO table (columns) VALUES (...), (...);} statements, with integer and string values.
+   */
+  static Map<String, List<JsonObject>> parseInserts(String sql) {
+    Map<String, List<JsonObject>> tables = new HashMap<>();
+    Matcher matcher = INSERT.matcher(sql);
+    int pos = 0;
+    while (matcher.find(pos)) {
+      String[] columns = matcher.group(2).trim().split("\\s*,\\s*");
+      List<JsonObject> rows = tables.computeIfAbsent(matcher.group(1), table -> new ArrayList<>());
+      pos = parseValues(sql, matcher.end(), columns, rows);
+    }
+    return tables;
+  }
+
+  private static int parseValues(String sql, int pos, String[] columns, List<JsonObject> rows) {
+    while (true) {
+      pos = expect(sql, pos, '(');
+      JsonObject row = new JsonObject();
+      for (int i = 0; i < columns.length; i++) {
+        pos = skipWhitespace(sql, pos);
+        if (sql.charAt(pos) == '\'') {
+          StringBuilder value = new StringBuilder();
+          pos++;
+          while (true) {
+            char c = sql.charAt(pos++);
+            if (c != '\'') {
+              value.append(c);
+            } else if (pos < sql.length() && sql.charAt(pos) == '\'') {
+              value.append(c);
+              pos++;
+            } else {
+              break;
+            }
+          }
+          row.put(columns[i], value.toString());
+        } else {
+          int end = pos;
+          while (sql.charAt(end) == '-' || Character.isDigit(sql.charAt(end))) {
+            end++;
+          }
+          row.put(columns[i], Integer.valueOf(sql.substring(pos, end)));
+          pos = end;
+        }
+        pos = expect(sql, pos, i < columns.length - 1 ? ',' : ')');
+      }
+      rows.add(row);
+      pos = skipWhitespace(sql, pos);
+      if (sql.charAt(pos) == ';') {
+        return pos + 1;
+      }
+      pos = expect(sql, pos, ',');
+    }
+  }
+
+  private static int expect(String sql, int pos, char expected) {
+    pos = skipWhitespace(sql, pos);
+    if (sql.charAt(pos) != expected) {
+      throw new IllegalArgumentException("Expected '" + expected + "' at offset " + pos + ", found '" + sql.charAt(pos) + "'");
+    }
+    return pos + 1;
+  }
+
+  private static int skipWhitespace(String sql, int pos) {
+    while (Character.isWhitespace(sql.charAt(pos))) {
+      pos++;
+    }
+    return pos;
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.vertx;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import graphql.ExecutionResult;
+import graphql.GraphQLError;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes an {@link ExecutionResult} straight into a pooled Netty buffer.
+ * <p>
+ * The result tree is walked once, without building the intermediate specification map and {@link JsonObject}.
+ * The caller owns the returned buffer and must release it once it has been written.
+ */
+public class JsonResponseWriter {
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private JsonResponseWriter() {
+  }
+
+  public static ByteBuf encode(ExecutionResult result) {
+    ByteBuf byteBuf = PooledByteBufAllocator.DEFAULT.buffer();
+    try (JsonGenerator generator = JSON_FACTORY.createGenerator((OutputStream) new ByteBufOutputStream(byteBuf))) {
+      generator.writeStartObject();
+      List<GraphQLError> errors = result.getErrors();
+      if (!errors.isEmpty()) {
+        generator.writeArrayFieldStart("errors");
+        for (GraphQLError error : errors) {
+          writeValue(generator, error.toSpecification());
+        }
+        generator.writeEndArray();
+      }
+      if (result.isDataPresent()) {
+        generator.writeFieldName("data");
+        writeValue(generator, result.getData());
+      }
+      Map<Object, Object> extensions = result.getExtensions();
+      if (extensions != null) {
+        generator.writeFieldName("extensions");
+        writeValue(generator, extensions);
+      }
+      generator.writeEndObject();
+    } catch (IOException e) {
+      byteBuf.release();
+      throw new UncheckedIOException(e);
+    } catch (RuntimeException e) {
+      byteBuf.release();
+      throw e;
+    }
+    return byteBuf;
+  }
+
+  private static void writeValue(JsonGenerator generator, Object value) throws IOException {
+    if (value == null) {
+      generator.writeNull();
+    } else if (value instanceof String) {
+      generator.writeString((String) value);
+    } else if (value instanceof Map) {
+      generator.writeStartObject();
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        generator.writeFieldName(String.valueOf(entry.getKey()));
+        writeValue(generator, entry.getValue());
+      }
+      generator.writeEndObject();
+    } else if (value instanceof List) {
+      List<?> list = (List<?>) value;
+      generator.writeStartArray();
+      for (int i = 0; i < list.size(); i++) {
+        writeValue(generator, list.get(i));
+      }
+      generator.writeEndArray();
+    } else if (value instanceof Integer) {
+      generator.writeNumber((Integer) value);
+    } else if (value instanceof Long) {
+      generator.writeNumber((Long) value);
+    } else if (value instanceof Double) {
+      generator.writeNumber((Double) value);
+    } else if (value instanceof Float) {
+      generator.writeNumber((Float) value);
+    } else if (value instanceof BigDecimal) {
+      generator.writeNumber((BigDecimal) value);
+    } else if (value instanceof BigInteger) {
+      generator.writeNumber((BigInteger) value);
+    } else if (value instanceof Number) {
+      generator.writeNumber(((Number) value).longValue());
+    } else if (value instanceof Boolean) {
+      generator.writeBoolean((Boolean) value);
+    } else if (value instanceof JsonObject) {
+      writeValue(generator, ((JsonObject) value).getMap());
+    } else if (value instanceof JsonArray) {
+      writeValue(generator, ((JsonArray) value).getList());
+    } else if (value instanceof Iterable) {
+      generator.writeStartArray();
+      for (Object item : (Iterable<?>) value) {
+        writeValue(generator, item);
+      }
+      generator.writeEndArray();
+    } else {
+      generator.writeString(value.toString());
+    }
+  }
+}
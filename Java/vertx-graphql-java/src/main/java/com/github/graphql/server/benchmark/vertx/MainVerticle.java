@@ -0,0 +1,48 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.vertx;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Deploys one {@link ServerVerticle} instance per event loop, by default as many as available processors.
+ * <p>
+ * The number of instances can be overridden with the {@code SERVER_INSTANCES} environment variable.
+ */
+public class MainVerticle extends AbstractVerticle {
+
+  @Override
+  public void start(Promise<Void> startPromise) {
+    JsonObject config = config();
+    int defaultInstances = config.getInteger("instances", Runtime.getRuntime().availableProcessors());
+    String instances = System.getenv().getOrDefault("SERVER_INSTANCES", String.valueOf(defaultInstances));
+
+    DeploymentOptions deploymentOptions = new DeploymentOptions()
+      .setConfig(config)
+      .setInstances(Integer.parseInt(instances));
+    vertx.deployVerticle(ServerVerticle.class.getName(), deploymentOptions, ar -> {
+      if (ar.succeeded()) {
+        startPromise.complete();
+      } else {
+        startPromise.fail(ar.cause());
+      }
+    });
+  }
+}
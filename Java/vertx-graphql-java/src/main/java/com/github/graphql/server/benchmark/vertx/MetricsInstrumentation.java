@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.vertx;
+
+import graphql.ExecutionResult;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.SimpleInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationFieldFetchParameters;
+import graphql.schema.DataFetchingEnvironment;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static graphql.execution.instrumentation.SimpleInstrumentationContext.whenCompleted;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Times GraphQL operations, and the fetch of fields with a custom data fetcher.
+ * <p>
+ * Fields resolved with a property data fetcher are not timed, as they would only measure a map lookup.
+ */
+public class MetricsInstrumentation extends SimpleInstrumentation {
+
+  private final MeterRegistry registry;
+  private final Timer executionTimer;
+  private final Map<String, Timer> fieldTimers = new ConcurrentHashMap<>();
+
+  public MetricsInstrumentation(MeterRegistry registry) {
+    this.registry = registry;
+    executionTimer = Timer.builder("graphql.execution")
+      .description("GraphQL operation execution time")
+      .publishPercentileHistogram()
+      .register(registry);
+  }
+
+  @Override
+  public InstrumentationContext<ExecutionResult> beginExecution(InstrumentationExecutionParameters parameters) {
+    long start = System.nanoTime();
+    return whenCompleted((result, throwable) -> executionTimer.record(System.nanoTime() - start, NANOSECONDS));
+  }
+
+  @Override
+  public InstrumentationContext<Object> beginFieldFetch(InstrumentationFieldFetchParameters parameters) {
+    if (parameters.isTrivialDataFetcher()) {
+      return super.beginFieldFetch(parameters);
+    }
+    DataFetchingEnvironment env = parameters.getEnvironment();
+    String field = env.getParentType().getName() + "." + env.getFieldDefinition().getName();
+    Timer timer = fieldTimers.computeIfAbsent(field, f -> {
+      return Timer.builder("graphql.field")
+        .description("GraphQL field fetch time")
+        .tag("field", f)
+        .publishPercentileHistogram()
+        .register(registry);
+    });
+    long start = System.nanoTime();
+    return whenCompleted((result, throwable) -> timer.record(System.nanoTime() - start, NANOSECONDS));
+  }
+}
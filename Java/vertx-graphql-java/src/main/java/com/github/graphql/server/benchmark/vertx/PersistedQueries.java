@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.vertx;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+
+/**
+ * Automatic persisted queries, as implemented by Apollo: clients send the SHA-256 hash of the query in the
+ * {@code persistedQuery} extension, and only send the query text when the server does not know the hash yet.
+ * <p>
+ * Queries are kept in a bounded cache, shared by all the verticle instances.
+ */
+public class PersistedQueries implements Shareable {
+
+  public static final String NOT_FOUND = "PersistedQueryNotFound";
+
+  private final Cache<String, String> cache;
+
+  public PersistedQueries(long maxSize) {
+    cache = Caffeine.newBuilder()
+      .maximumSize(maxSize)
+      .recordStats()
+      .build();
+  }
+
+  /**
+   * Resolves the query of a request.
+   *
+   * @param query the query text sent by the client, may be {@code null}
+   * @param extensions the request extensions, may be {@code null}
+   * @return the query to execute, or {@code null} if the client sent a hash the server does not know
+   * @throws IllegalArgumentException if the persisted query version is not supported, or the hash does not match the query
+   */
+  public String resolve(String query, JsonObject extensions) {
+    JsonObject persistedQuery = extensions == null ? null : extensions.getJsonObject("persistedQuery");
+    if (persistedQuery == null) {
+      return query;
+    }
+    if (persistedQuery.getInteger("version", 1) != 1) {
+      throw new IllegalArgumentException("Unsupported persisted query version");
+    }
+    String hash = persistedQuery.getString("sha256Hash");
+    if (hash == null) {
+      throw new IllegalArgumentException("Persisted query hash is missing");
+    }
+    hash = hash.toLowerCase();
+    if (query == null) {
+      return cache.getIfPresent(hash);
+    }
+    if (!hash.equals(Digests.sha256(query))) {
+      throw new IllegalArgumentException("Provided sha does not match query");
+    }
+    cache.put(hash, query);
+    return query;
+  }
+
+  public JsonObject stats() {
+    CacheStats stats = cache.stats();
+    return new JsonObject()
+      .put("size", cache.estimatedSize())
+      .put("hits", stats.hitCount())
+      .put("misses", stats.missCount())
+      .put("evictions", stats.evictionCount());
+  }
+}
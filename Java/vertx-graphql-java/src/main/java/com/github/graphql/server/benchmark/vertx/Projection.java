@@ -0,0 +1,152 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.vertx;
+
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.DataFetchingFieldSelectionSet;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.sqlclient.Row;
+import org.dataloader.BatchLoaderEnvironment;
+import org.dataloader.DataLoader;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Derives SQL column lists from GraphQL selection sets, so that only the columns needed by the requested fields are read.
+ * <p>
+ * The key columns ({@code posts.id} and {@code comments.post_id}) are always selected, nested fetchers and DataLoaders rely on them.
+ * <p>
+ * DataLoaders keep a single context per key in a batch, so loads of the same key with different selections must share
+ * it: the key context is the set of columns selected by all the loads of the key during the request. DataLoaders also
+ * cache the row of a key for the request, so a load which selects columns missing from the key context reloads the key,
+ * with all the columns selected so far.
+ */
+public class Projection {
+
+  private static final Map<String, String> POST_COLUMNS = new LinkedHashMap<>();
+  private static final Map<String, String> COMMENT_COLUMNS = new LinkedHashMap<>();
+  private static final String KEY_CONTEXTS = Projection.class.getName() + ".keyContexts";
+
+  static {
+    POST_COLUMNS.put("author", "author_id");
+    POST_COLUMNS.put("title", "title");
+    POST_COLUMNS.put("content", "content");
+    COMMENT_COLUMNS.put("author", "author_id");
+    COMMENT_COLUMNS.put("content", "content");
+  }
+
+  private Projection() {
+  }
+
+  public static List<String> postColumns(DataFetchingFieldSelectionSet selectionSet) {
+    return columns("id", POST_COLUMNS, Collections.singletonList(selectionSet), "");
+  }
+
+  /**
+   * @param selectionSet the selection set of a connection of posts, where posts are the {@code edges/node} fields
+   */
+  public static List<String> connectionPostColumns(DataFetchingFieldSelectionSet selectionSet) {
+    return columns("id", POST_COLUMNS, Collections.singletonList(selectionSet), "edges/node/");
+  }
+
+  public static List<String> postColumns(BatchLoaderEnvironment env) {
+    return columns("id", POST_COLUMNS, env);
+  }
+
+  public static <V> CompletableFuture<V> loadPost(DataFetchingEnvironment env, DataLoader<Integer, V> dataLoader, Integer postId) {
+    return load(env, dataLoader, "post:", postId, postColumns(env.getSelectionSet()));
+  }
+
+  public static List<String> commentColumns(DataFetchingFieldSelectionSet selectionSet) {
+    return columns("post_id", COMMENT_COLUMNS, Collections.singletonList(selectionSet), "");
+  }
+
+  public static List<String> commentColumns(BatchLoaderEnvironment env) {
+    return columns("post_id", COMMENT_COLUMNS, env);
+  }
+
+  public static <V> CompletableFuture<V> loadComments(DataFetchingEnvironment env, DataLoader<Integer, V> dataLoader, Integer postId) {
+    return load(env, dataLoader, "comment:", postId, commentColumns(env.getSelectionSet()));
+  }
+
+  public static List<String> nestedCommentColumns(DataFetchingFieldSelectionSet selectionSet) {
+    return columns("post_id", COMMENT_COLUMNS, Collections.singletonList(selectionSet), "comments/");
+  }
+
+  public static String select(List<String> columns, String alias) {
+    return columns.stream().map(column -> alias + column).collect(joining(", "));
+  }
+
+  public static JsonObject toJson(Row row) {
+    JsonObject json = new JsonObject();
+    for (int i = 0; i < row.size(); i++) {
+      json.put(row.getColumnName(i), row.getValue(i));
+    }
+    return json;
+  }
+
+  private static <V> CompletableFuture<V> load(DataFetchingEnvironment env, DataLoader<Integer, V> dataLoader, String prefix, Integer key, List<String> columns) {
+    // Operations of a batch share the routing context as well as the DataLoaders
+    RoutingContext rc = env.getContext();
+    Map<String, Set<String>> keyContexts = rc.get(KEY_CONTEXTS);
+    if (keyContexts == null) {
+      keyContexts = new HashMap<>();
+      rc.put(KEY_CONTEXTS, keyContexts);
+    }
+    Set<String> keyContext = keyContexts.computeIfAbsent(prefix + key, k -> new HashSet<>());
+    if (keyContext.addAll(columns)) {
+      // The cached row, if any, lacks some of the columns
+      dataLoader.clear(key);
+    }
+    return dataLoader.load(key, keyContext);
+  }
+
+  private static List<String> columns(String keyColumn, Map<String, String> mapping, BatchLoaderEnvironment env) {
+    Set<String> selected = new HashSet<>();
+    for (Object keyContext : env.getKeyContexts().values()) {
+      for (Object column : (Set<?>) keyContext) {
+        selected.add((String) column);
+      }
+    }
+    List<String> columns = new ArrayList<>(mapping.size() + 1);
+    columns.add(keyColumn);
+    for (String column : mapping.values()) {
+      if (selected.contains(column)) {
+        columns.add(column);
+      }
+    }
+    return columns;
+  }
+
+  private static List<String> columns(String keyColumn, Map<String, String> mapping, List<DataFetchingFieldSelectionSet> selectionSets, String prefix) {
+    List<String> columns = new ArrayList<>(mapping.size() + 1);
+    columns.add(keyColumn);
+    for (Map.Entry<String, String> entry : mapping.entrySet()) {
+      for (DataFetchingFieldSelectionSet selectionSet : selectionSets) {
+        if (selectionSet.contains(prefix + entry.getKey())) {
+          columns.add(entry.getValue());
+          break;
+        }
+      }
+    }
+    return columns;
+  }
+}
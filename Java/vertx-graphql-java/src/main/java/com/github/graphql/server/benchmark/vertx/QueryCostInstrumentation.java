@@ -0,0 +1,149 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.vertx;
+
+import graphql.ExecutionResult;
+import graphql.analysis.QueryTraverser;
+import graphql.analysis.QueryVisitorFieldEnvironment;
+import graphql.analysis.QueryVisitorStub;
+import graphql.execution.AbortExecutionException;
+import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.SimpleInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.schema.GraphQLTypeUtil;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Estimates the cost of an operation before it is executed, and aborts it if it is over budget.
+ * <p>
+ * A field costs {@code dataSourceCost} if it is resolved with a database query or a backend call, {@code 1} otherwise.
+ * The cost of the selection under a list field is multiplied by {@code listSize}, the expected number of items, or by the
+ * {@code first} argument of the enclosing connection field, like {@code postsConnection(first: 50) { edges { ... } }}.
+ * <p>
+ * The check is done when the operation starts, instead of after validation, so that documents from the {@link DocumentCache} are checked as well.
+ */
+public class QueryCostInstrumentation extends SimpleInstrumentation implements Shareable {
+
+  private static final long[] BUCKETS = {10, 100, 1000, 10000, 100000};
+
+  private final Set<String> dataSourceFields;
+  private final int maxCost;
+  private final int maxDepth;
+  private final int listSize;
+  private final int dataSourceCost;
+
+  private final LongAdder accepted = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final DoubleAdder totalCost = new DoubleAdder();
+  private final LongAccumulator maxObservedCost = new LongAccumulator(Math::max, 0);
+  private final LongAdder[] distribution = new LongAdder[BUCKETS.length + 1];
+
+  public QueryCostInstrumentation(JsonObject config, Set<String> dataSourceFields) {
+    this.dataSourceFields = dataSourceFields;
+    maxCost = config.getInteger("maxCost", 5000);
+    maxDepth = config.getInteger("maxDepth", 10);
+    listSize = config.getInteger("listSize", 10);
+    dataSourceCost = config.getInteger("dataSourceCost", 10);
+    for (int i = 0; i < distribution.length; i++) {
+      distribution[i] = new LongAdder();
+    }
+  }
+
+  private int listSize(QueryVisitorFieldEnvironment env) {
+    QueryVisitorFieldEnvironment parent = env.getParentEnvironment();
+    Object first = parent == null ? null : parent.getArguments().get("first");
+    return first instanceof Integer ? (Integer) first : listSize;
+  }
+
+  @Override
+  public InstrumentationContext<ExecutionResult> beginExecuteOperation(InstrumentationExecuteOperationParameters parameters) {
+    ExecutionContext executionContext = parameters.getExecutionContext();
+    QueryTraverser queryTraverser = QueryTraverser.newQueryTraverser()
+      .schema(executionContext.getGraphQLSchema())
+      .document(executionContext.getDocument())
+      .operationName(executionContext.getOperationDefinition().getName())
+      .variables(executionContext.getVariables())
+      .build();
+
+    Map<QueryVisitorFieldEnvironment, Double> childCosts = new HashMap<>();
+    int[] depth = new int[1];
+    queryTraverser.visitPostOrder(new QueryVisitorStub() {
+      @Override
+      public void visitField(QueryVisitorFieldEnvironment env) {
+        String coordinates = GraphQLTypeUtil.unwrapAll(env.getParentType()).getName() + "." + env.getFieldDefinition().getName();
+        double cost = dataSourceFields.contains(coordinates) ? dataSourceCost : 1;
+        Double childCost = childCosts.remove(env);
+        if (childCost != null) {
+          cost += GraphQLTypeUtil.isList(GraphQLTypeUtil.unwrapNonNull(env.getFieldDefinition().getType())) ? listSize(env) * childCost : childCost;
+        }
+        childCosts.merge(env.getParentEnvironment(), cost, Double::sum);
+        int fieldDepth = 0;
+        for (QueryVisitorFieldEnvironment e = env; e != null; e = e.getParentEnvironment()) {
+          fieldDepth++;
+        }
+        depth[0] = Math.max(depth[0], fieldDepth);
+      }
+    });
+    long cost = (long) Math.min(childCosts.getOrDefault(null, 0D), Long.MAX_VALUE);
+
+    record(cost);
+    if (depth[0] > maxDepth) {
+      rejected.increment();
+      throw new AbortExecutionException("Query depth " + depth[0] + " exceeds the maximum of " + maxDepth);
+    }
+    if (cost > maxCost) {
+      rejected.increment();
+      throw new AbortExecutionException("Query cost " + cost + " exceeds the maximum of " + maxCost);
+    }
+    accepted.increment();
+    return super.beginExecuteOperation(parameters);
+  }
+
+  private void record(long cost) {
+    totalCost.add(cost);
+    maxObservedCost.accumulate(cost);
+    int bucket = 0;
+    while (bucket < BUCKETS.length && cost > BUCKETS[bucket]) {
+      bucket++;
+    }
+    distribution[bucket].increment();
+  }
+
+  public JsonObject stats() {
+    long accepted = this.accepted.sum();
+    long rejected = this.rejected.sum();
+    JsonObject distribution = new JsonObject();
+    for (int i = 0; i < this.distribution.length; i++) {
+      distribution.put(i < BUCKETS.length ? String.valueOf(BUCKETS[i]) : "+Inf", this.distribution[i].sum());
+    }
+    return new JsonObject()
+      .put("accepted", accepted)
+      .put("rejected", rejected)
+      .put("averageCost", accepted + rejected == 0 ? 0 : (long) (totalCost.sum() / (accepted + rejected)))
+      .put("maxCost", maxObservedCost.get())
+      .put("distribution", distribution);
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.vertx;
+
+import graphql.execution.instrumentation.InstrumentationState;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Timings of a traced request, returned under the {@code trace} key of the response extensions.
+ * <p>
+ * Offsets and durations are in nanoseconds, offsets are relative to the start of the request.
+ */
+public class RequestTrace implements InstrumentationState {
+
+  public static final String HEADER = "X-GraphQL-Trace";
+  public static final String KEY = "trace";
+
+  private final long start = System.nanoTime();
+  private final JsonArray fields = new JsonArray();
+  private final JsonArray dataLoaders = new JsonArray();
+  private final JsonArray queries = new JsonArray();
+  private final JsonArray backendCalls = new JsonArray();
+
+  public synchronized void field(String path, long start, long end) {
+    fields.add(span(new JsonObject().put("path", path), start, end));
+  }
+
+  public synchronized void dataLoader(String name, int keys, long start, long end) {
+    dataLoaders.add(span(new JsonObject().put("loader", name).put("keys", keys), start, end));
+  }
+
+  public synchronized void query(String sql, long start, long end) {
+    queries.add(span(new JsonObject().put("sql", sql), start, end));
+  }
+
+  public synchronized void backendCall(String uri, long start, long end) {
+    backendCalls.add(span(new JsonObject().put("uri", uri), start, end));
+  }
+
+  private JsonObject span(JsonObject span, long start, long end) {
+    return span.put("startOffset", start - this.start).put("duration", end - start);
+  }
+
+  public synchronized JsonObject toJson() {
+    return new JsonObject()
+      .put("duration", System.nanoTime() - start)
+      .put("fields", fields.copy())
+      .put("dataLoaders", dataLoaders.copy())
+      .put("queries", queries.copy())
+      .put("backendCalls", backendCalls.copy());
+  }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.vertx;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import graphql.ExecutionInput;
+import graphql.execution.instrumentation.InstrumentationState;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Application-wide cache of encoded responses, keyed by the hash of the normalized document, operation name and
+ * variables, shared by all the verticle instances.
+ * <p>
+ * Each entry is tagged with the authors and posts whose fields were fetched to build it (see
+ * {@link ResponseCacheInstrumentation}), so that it can be invalidated when one of them changes.
+ * Responses of executions which overlap an invalidation are not stored, as they may hold stale data.
+ */
+public class ResponseCache implements Shareable {
+
+  public static final String TAGS_KEY = "responseCacheTags";
+
+  private final Cache<String, Entry> cache;
+  private final ConcurrentMap<Integer, Set<String>> keysByAuthor = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Integer, Set<String>> keysByPost = new ConcurrentHashMap<>();
+  private final AtomicLong generation = new AtomicLong();
+
+  public ResponseCache(JsonObject config) {
+    Caffeine<Object, Object> builder = Caffeine.newBuilder()
+      .executor(Runnable::run)
+      .maximumSize(config.getLong("maxSize", 10000L))
+      .recordStats();
+    long expireAfterWrite = config.getLong("expireAfterWrite", 60000L);
+    if (expireAfterWrite > 0) {
+      builder.expireAfterWrite(expireAfterWrite, MILLISECONDS);
+    }
+    cache = builder.<String, Entry>removalListener((key, entry, cause) -> {
+      if (entry != null) {
+        unindex(keysByAuthor, entry.tags.authors, key);
+        unindex(keysByPost, entry.tags.posts, key);
+      }
+    }).build();
+  }
+
+  public static String key(ExecutionInput input) {
+    return Digests.sha256(normalize(input.getQuery()) + '\n' + input.getOperationName() + '\n' + Json.encode(input.getVariables()));
+  }
+
+  /**
+   * Removes ignored tokens (whitespace, commas and comments) which do not separate names or numbers.
+   */
+  static String normalize(String query) {
+    StringBuilder sb = new StringBuilder(query.length());
+    boolean separated = false;
+    for (int i = 0; i < query.length(); i++) {
+      char c = query.charAt(i);
+      if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == ',') {
+        separated = true;
+      } else if (c == '#') {
+        while (i + 1 < query.length() && query.charAt(i + 1) != '\n' && query.charAt(i + 1) != '\r') {
+          i++;
+        }
+        separated = true;
+      } else if (c == '"') {
+        // String values are kept as is
+        sb.append(c);
+        while (++i < query.length()) {
+          c = query.charAt(i);
+          sb.append(c);
+          if (c == '\\' && i + 1 < query.length()) {
+            sb.append(query.charAt(++i));
+          } else if (c == '"') {
+            break;
+          }
+        }
+        separated = false;
+      } else {
+        if (separated && sb.length() > 0 && isNameChar(sb.charAt(sb.length() - 1)) && isNameChar(c)) {
+          sb.append(' ');
+        }
+        sb.append(c);
+        separated = false;
+      }
+    }
+    return sb.toString();
+  }
+
+  private static boolean isNameChar(char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.';
+  }
+
+  public Buffer get(String key) {
+    Entry entry = cache.getIfPresent(key);
+    return entry == null ? null : entry.body;
+  }
+
+  public Tags newTags() {
+    return new Tags(generation.get());
+  }
+
+  public void put(String key, Tags tags, Buffer body) {
+    if (generation.get() != tags.generation) {
+      return;
+    }
+    // Entries are never replaced, so that the removal listener only unindexes entries which are gone
+    Entry entry = new Entry(tags, body);
+    if (cache.asMap().putIfAbsent(key, entry) != null) {
+      return;
+    }
+    index(keysByAuthor, tags.authors, key);
+    index(keysByPost, tags.posts, key);
+    if (generation.get() != tags.generation) {
+      cache.asMap().remove(key, entry);
+    }
+  }
+
+  public void invalidateAuthor(int authorId) {
+    invalidate(keysByAuthor, authorId);
+  }
+
+  public void invalidatePost(int postId) {
+    invalidate(keysByPost, postId);
+  }
+
+  public void invalidateAll() {
+    generation.incrementAndGet();
+    cache.invalidateAll();
+  }
+
+  private void invalidate(ConcurrentMap<Integer, Set<String>> index, int id) {
+    generation.incrementAndGet();
+    Set<String> keys = index.remove(id);
+    if (keys != null) {
+      cache.invalidateAll(keys);
+    }
+  }
+
+  private static void index(ConcurrentMap<Integer, Set<String>> index, Set<Integer> ids, String key) {
+    for (Integer id : ids) {
+      index.computeIfAbsent(id, k -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+  }
+
+  private static void unindex(ConcurrentMap<Integer, Set<String>> index, Set<Integer> ids, String key) {
+    for (Integer id : ids) {
+      index.computeIfPresent(id, (k, keys) -> {
+        keys.remove(key);
+        return keys.isEmpty() ? null : keys;
+      });
+    }
+  }
+
+  public JsonObject stats() {
+    CacheStats stats = cache.stats();
+    return new JsonObject()
+      .put("size", cache.estimatedSize())
+      .put("hits", stats.hitCount())
+      .put("misses", stats.missCount())
+      .put("evictions", stats.evictionCount())
+      .put("invalidations", generation.get());
+  }
+
+  /**
+   * The authors and posts read by an execution, recorded on the context of the request.
+   */
+  public static class Tags implements InstrumentationState {
+
+    final long generation;
+    final Set<Integer> authors = new HashSet<>();
+    final Set<Integer> posts = new HashSet<>();
+
+    Tags(long generation) {
+      this.generation = generation;
+    }
+
+    void author(Integer authorId) {
+      if (authorId != null) {
+        authors.add(authorId);
+      }
+    }
+
+    void post(Integer postId) {
+      if (postId != null) {
+        posts.add(postId);
+      }
+    }
+  }
+
+  private static class Entry {
+
+    final Tags tags;
+    final Buffer body;
+
+    Entry(Tags tags, Buffer body) {
+      this.tags = tags;
+      this.body = body;
+    }
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.vertx;
+
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationCreateStateParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationFieldFetchParameters;
+import graphql.schema.GraphQLObjectType;
+import graphql.schema.GraphQLType;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * Records in the {@link ResponseCache.Tags} of the request the authors and posts whose fields are fetched.
+ * <p>
+ * Post and comment rows always hold their key column ({@code id} and {@code post_id}), see {@link Projection}.
+ */
+public class ResponseCacheInstrumentation extends SimpleInstrumentation {
+
+  @Override
+  public InstrumentationState createState(InstrumentationCreateStateParameters parameters) {
+    RoutingContext rc = (RoutingContext) parameters.getExecutionInput().getContext();
+    return rc.get(ResponseCache.TAGS_KEY);
+  }
+
+  @Override
+  public InstrumentationContext<Object> beginFieldFetch(InstrumentationFieldFetchParameters parameters) {
+    ResponseCache.Tags tags = parameters.getInstrumentationState();
+    Object source = parameters.getEnvironment().getSource();
+    GraphQLType parentType = parameters.getEnvironment().getParentType();
+    if (tags != null && source instanceof JsonObject && parentType instanceof GraphQLObjectType) {
+      JsonObject object = (JsonObject) source;
+      switch (((GraphQLObjectType) parentType).getName()) {
+        case "Author":
+          tags.author(object.getInteger("id"));
+          break;
+        case "Post":
+          tags.post(object.getInteger("id"));
+          break;
+        case "Comment":
+          tags.post(object.getInteger("post_id"));
+          break;
+      }
+    }
+    return super.beginFieldFetch(parameters);
+  }
+}
@@ -16,93 +16,121 @@
 
 package com.github.graphql.server.benchmark.vertx;
 
-import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
-import com.github.benmanes.caffeine.cache.Caffeine;
 import graphql.GraphQL;
-import graphql.schema.DataFetcher;
-import graphql.schema.DataFetchingEnvironment;
+import graphql.execution.instrumentation.ChainedInstrumentation;
+import graphql.execution.instrumentation.Instrumentation;
 import graphql.schema.GraphQLSchema;
-import graphql.schema.idl.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
 import io.vertx.core.AbstractVerticle;
-import io.vertx.core.Context;
-import io.vertx.core.Future;
-import io.vertx.core.Promise;
-import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
-import io.vertx.ext.web.client.HttpResponse;
 import io.vertx.ext.web.client.WebClient;
 import io.vertx.ext.web.client.WebClientOptions;
-import io.vertx.ext.web.client.predicate.ResponsePredicate;
-import io.vertx.ext.web.codec.BodyCodec;
-import io.vertx.ext.web.handler.graphql.GraphQLHandler;
+import io.vertx.ext.web.handler.BodyHandler;
 import io.vertx.ext.web.handler.graphql.GraphiQLHandler;
-import io.vertx.ext.web.handler.graphql.VertxPropertyDataFetcher;
 import io.vertx.pgclient.PgConnectOptions;
 import io.vertx.pgclient.PgPool;
 import io.vertx.sqlclient.PoolOptions;
-import io.vertx.sqlclient.Row;
-import io.vertx.sqlclient.SqlResult;
-import io.vertx.sqlclient.Tuple;
-import org.dataloader.BatchLoaderEnvironment;
-import org.dataloader.DataLoader;
-import org.dataloader.DataLoaderRegistry;
 
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
-import java.util.stream.Collector;
-
-import static graphql.schema.idl.RuntimeWiring.newRuntimeWiring;
-import static java.util.stream.Collectors.*;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
 
 public class ServerVerticle extends AbstractVerticle {
 
-  private Executor contextExecutor;
+  // Fields resolved with a database query or a backend call
+  private static final Set<String> DATA_SOURCE_FIELDS = new HashSet<>(Arrays.asList(
+    "Query.posts", "Query.postsConnection", "Query.author",
+    "Post.author", "Post.comments",
+    "Author.posts", "Author.postsConnection", "Author.comments",
+    "Comment.author", "Comment.post"
+  ));
+
   private WebClient webClient;
   private PgPool pgClient;
+  private PgConnectOptions pgConnectOptions;
+  private DocumentCache documentCache;
+  private PersistedQueries persistedQueries;
+  private ResponseCache responseCache;
+  private DataCache dataCache;
+  private AuthorCache authorCache;
+  private InMemoryData inMemoryData;
+  private QueryCostInstrumentation queryCost;
+  private Metrics metrics;
+  private MeterRegistry meterRegistry;
 
   @Override
   public void start() {
-    Context context = vertx.getOrCreateContext();
-    contextExecutor = cmd -> context.runOnContext(v -> cmd.run());
-
     JsonObject config = config();
     int port = config.getInteger("port", 8080);
 
+    setupMetrics(config);
     setupWebClient(config);
     setupPgClient(config);
-
-    GraphQL graphQL = setupGraphQL();
-    GraphQLHandler graphQLHandler = GraphQLHandler.create(graphQL)
-      .dataLoaderRegistry(rc -> {
-        DataLoader<Integer, JsonArray> commentDataLoader = DataLoader.newMappedDataLoader((keys, env) -> {
-          return toCompletableFuture(findComments(keys, env));
-        });
-        DataLoader<Integer, JsonObject> postDataLoader = DataLoader.newMappedDataLoader((keys, env) -> {
-          return toCompletableFuture(findPosts(keys, env));
-        });
-        return new DataLoaderRegistry()
-          .register("comment", commentDataLoader)
-          .register("post", postDataLoader);
-      });
+    setupDocumentCache(config);
+    setupPersistedQueries(config);
+    setupResponseCache(config);
+    setupDataCache(config);
+    setupAuthorCache(config);
+    setupInMemoryData(config);
+    setupQueryCost(config);
+
+    BlogSchema blogSchema = new BlogSchema(vertx, config, meterRegistry, webClient, pgClient, dataCache, authorCache, inMemoryData);
+    GraphQLSchema graphQLSchema = blogSchema.schema(config.getJsonObject("defer", new JsonObject()).getBoolean("enabled", false));
+    GraphQL graphQL = createGraphQL(graphQLSchema, false);
+    // Traced requests run on a separate instance, so that untraced ones do not pay for the trace instrumentation
+    GraphQL tracedGraphQL = config.getJsonObject("trace", new JsonObject()).getBoolean("enabled", false) ? createGraphQL(graphQLSchema, true) : null;
+    boolean streamingResponse = config.getBoolean("streamingResponse", true);
+    JsonObject batching = config.getJsonObject("batching", new JsonObject());
+    int maxBatchSize = batching.getBoolean("enabled", false) ? batching.getInteger("maxOperations", 10) : 0;
+    GraphQLRequestHandler graphQLHandler = new GraphQLRequestHandler(graphQL, tracedGraphQL, blogSchema::dataLoaderRegistry, streamingResponse,
+      persistedQueries, cacheControl(config), responseCache, maxBatchSize, batching.getBoolean("completionOrder", false));
 
     Router router = Router.router(vertx);
+    router.route("/graphql").handler(BodyHandler.create());
     router.route("/graphql").handler(graphQLHandler);
     router.get("/graphiql/*").handler(GraphiQLHandler.create());
+    router.get("/stats").handler(this::sendStats);
+    if (metrics != null) {
+      router.get("/metrics").handler(metrics);
+    }
+    if (responseCache != null) {
+      router.delete("/responseCache").handler(rc -> {
+        responseCache.invalidateAll();
+        rc.response().setStatusCode(204).end();
+      });
+      router.delete("/responseCache/authors/:id").handler(rc -> invalidateResponseCache(rc, responseCache::invalidateAuthor));
+      router.delete("/responseCache/posts/:id").handler(rc -> invalidateResponseCache(rc, responseCache::invalidatePost));
+    }
 
     vertx.createHttpServer()
       .requestHandler(router)
       .listen(port);
   }
 
+  private void setupMetrics(JsonObject config) {
+    if (config.getJsonObject("metrics", new JsonObject()).getBoolean("enabled", false)) {
+      metrics = shared("metrics", Metrics::new);
+      meterRegistry = metrics.registry();
+    } else {
+      // Without any registry added, meters are no-ops
+      meterRegistry = new CompositeMeterRegistry();
+    }
+  }
+
   private void setupWebClient(JsonObject config) {
     JsonObject backend = config.getJsonObject("backend", new JsonObject());
     String backendHost = System.getenv().getOrDefault("BACKEND_HOST", backend.getString("host", "localhost"));
     int backendPort = backend.getInteger("port", 8181);
-    int maxSize = backend.getInteger("poolSize", 32);
+    int maxSize = poolSize(backend, 32);
 
     WebClientOptions webClientOptions = new WebClientOptions()
       .setDefaultHost(backendHost)
@@ -116,9 +144,9 @@ public class ServerVerticle extends AbstractVerticle {
     JsonObject postgres = config.getJsonObject("postgres", new JsonObject());
     String postgresHost = System.getenv().getOrDefault("POSTGRES_HOST", postgres.getString("host", "localhost"));
     int postgresPort = postgres.getInteger("port", 5432);
-    int maxSize = postgres.getInteger("poolSize", 4);
+    int maxSize = poolSize(postgres, 4);
 
-    PgConnectOptions pgConnectOptions = new PgConnectOptions()
+    pgConnectOptions = new PgConnectOptions()
       .setHost(postgresHost)
       .setPort(postgresPort)
       .setUser("graphql")
@@ -130,158 +158,144 @@ public class ServerVerticle extends AbstractVerticle {
     pgClient = PgPool.pool(vertx, pgConnectOptions, pgPoolOptions);
   }
 
-  private GraphQL setupGraphQL() {
-    String schema = vertx.fileSystem().readFileBlocking("blog.graphqls").toString();
-
-    SchemaParser schemaParser = new SchemaParser();
-    TypeDefinitionRegistry typeDefinitionRegistry = schemaParser.parse(schema);
-
-    RuntimeWiring runtimeWiring = newRuntimeWiring()
-      .wiringFactory(new WiringFactory() {
-        @Override
-        public DataFetcher getDefaultDataFetcher(FieldWiringEnvironment environment) {
-          return new VertxPropertyDataFetcher(environment.getFieldDefinition().getName());
-        }
-      })
-      .type("Query", builder -> {
-        return builder
-          .dataFetcher("posts", env -> toCompletableFuture(findPosts(null, env)))
-          .dataFetcher("author", env -> toCompletableFuture(findAuthor(env.getArgument("id"), env)));
-      }).type("Post", builder -> {
-        return builder
-          .dataFetcher("author", env -> {
-            JsonObject post = env.getSource();
-            return toCompletableFuture(findAuthor(post.getInteger("author_id"), env));
-          }).dataFetcher("comments", env -> {
-            JsonObject post = env.getSource();
-            DataLoader<Integer, JsonArray> comment = env.getDataLoader("comment");
-            return comment.load(post.getInteger("id"), env);
-          });
-      }).type("Author", builder -> {
-        return builder
-          .dataFetcher("posts", env -> {
-            JsonObject author = env.getSource();
-            return toCompletableFuture(findPosts(author.getInteger("id"), env));
-          }).dataFetcher("comments", env -> {
-            JsonObject author = env.getSource();
-            return toCompletableFuture(findComments(author.getInteger("id"), env));
-          });
-      }).type("Comment", builder -> {
-        return builder
-          .dataFetcher("author", env -> {
-            JsonObject comment = env.getSource();
-            return toCompletableFuture(findAuthor(comment.getInteger("author_id"), env));
-          }).dataFetcher("post", env -> {
-            JsonObject comment = env.getSource();
-            DataLoader<Integer, JsonObject> post = env.getDataLoader("post");
-            return post.load(comment.getInteger("post_id"), env);
-          });
-      })
-      .build();
-
-    SchemaGenerator schemaGenerator = new SchemaGenerator();
-    GraphQLSchema graphQLSchema = schemaGenerator.makeExecutableSchema(typeDefinitionRegistry, runtimeWiring);
-
-    return GraphQL.newGraphQL(graphQLSchema).build();
+  private int poolSize(JsonObject config, int defaultPoolSize) {
+    Integer maxConnections = config.getInteger("maxConnections");
+    if (maxConnections == null) {
+      return config.getInteger("poolSize", defaultPoolSize);
+    }
+    // The connection budget is shared by all the instances of this verticle
+    return Math.max(1, maxConnections / context.getInstanceCount());
   }
 
-  private Future<JsonObject> findAuthor(Integer authorId, DataFetchingEnvironment env) {
-    Promise<JsonObject> promise = Promise.promise();
-
-    AsyncLoadingCache<Integer, JsonObject> authorCache = getAuthorCache(env);
-    authorCache.get(authorId).whenComplete((jsonObject, throwable) -> {
-      if (throwable == null) {
-        promise.complete(jsonObject);
-      } else {
-        promise.fail(throwable);
-      }
-    });
-
-    return promise.future();
+  private void setupDocumentCache(JsonObject config) {
+    JsonObject cache = config.getJsonObject("documentCache", new JsonObject());
+    long maxSize = cache.getLong("maxSize", 1000L);
+    if (maxSize > 0) {
+      documentCache = shared("documentCache", () -> new DocumentCache(maxSize));
+    }
   }
 
-  private AsyncLoadingCache<Integer, JsonObject> getAuthorCache(DataFetchingEnvironment env) {
-    RoutingContext rc = env.getContext();
-    AsyncLoadingCache<Integer, JsonObject> authorCache = rc.get("authorCache");
-    if (authorCache == null) {
-      authorCache = Caffeine.newBuilder()
-        .executor(contextExecutor)
-        .buildAsync((key, executor) -> toCompletableFuture(loadAuthor(key)));
-      rc.put("authorCache", authorCache);
+  private void setupPersistedQueries(JsonObject config) {
+    JsonObject persisted = config.getJsonObject("persistedQueries", new JsonObject());
+    if (persisted.getBoolean("enabled", false)) {
+      long maxSize = persisted.getLong("maxSize", 1000L);
+      persistedQueries = shared("persistedQueries", () -> new PersistedQueries(maxSize));
     }
-    return authorCache;
   }
 
-  private Future<JsonObject> loadAuthor(Integer authorId) {
-    Promise<HttpResponse<JsonObject>> promise = Promise.promise();
+  private void setupResponseCache(JsonObject config) {
+    JsonObject cache = config.getJsonObject("responseCache", new JsonObject());
+    if (cache.getBoolean("enabled", false)) {
+      responseCache = shared("responseCache", () -> new ResponseCache(cache));
+    }
+  }
 
-    webClient.get("/author/" + authorId)
-      .as(BodyCodec.jsonObject())
-      .expect(ResponsePredicate.SC_OK)
-      .send(promise);
+  private void setupDataCache(JsonObject config) {
+    JsonObject cache = config.getJsonObject("dataCache", new JsonObject());
+    if (cache.getBoolean("enabled", false)) {
+      dataCache = shared("dataCache", () -> new DataCache(vertx, pgConnectOptions, cache));
+    }
+  }
 
-    return promise.future().map(HttpResponse::body);
+  private void invalidateResponseCache(RoutingContext rc, IntConsumer invalidation) {
+    int id;
+    try {
+      id = Integer.parseInt(rc.pathParam("id"));
+    } catch (NumberFormatException e) {
+      rc.response().setStatusCode(400).end();
+      return;
+    }
+    invalidation.accept(id);
+    rc.response().setStatusCode(204).end();
   }
 
-  private Future<JsonArray> findPosts(Integer authorId, DataFetchingEnvironment env) {
-    Promise<SqlResult<JsonArray>> promise = Promise.promise();
-    Collector<Row, ?, JsonArray> collector = mapping(this::toPost, collectingAndThen(toList(), JsonArray::new));
-    if (authorId == null) {
-      pgClient.preparedQuery("select * from posts", collector, promise);
-    } else {
-      pgClient.preparedQuery("select * from posts where author_id = $1", Tuple.of(authorId), collector, promise);
+  private static String cacheControl(JsonObject config) {
+    JsonObject httpCache = config.getJsonObject("httpCache", new JsonObject());
+    if (!httpCache.getBoolean("enabled", false)) {
+      return null;
     }
-    return promise.future().map(SqlResult::value);
+    long maxAge = httpCache.getLong("maxAge", 0L);
+    // Without a max age, caches must revalidate each response with its ETag
+    return maxAge > 0 ? "public, max-age=" + maxAge : "no-cache";
   }
 
-  private Future<Map<Integer, JsonObject>> findPosts(Set<Integer> ids, BatchLoaderEnvironment env) {
-    Promise<SqlResult<Map<Integer, JsonObject>>> promise = Promise.promise();
-    Collector<Row, ?, Map<Integer, JsonObject>> collector = toMap(row -> row.getInteger("id"), this::toPost);
-    pgClient.preparedQuery("select * from posts where id = any($1)", Tuple.of(ids.toArray(new Integer[0])), collector, promise);
-    return promise.future().map(SqlResult::value);
+  private void setupAuthorCache(JsonObject config) {
+    JsonObject cache = config.getJsonObject("authorCache", new JsonObject());
+    if (cache.getBoolean("enabled", false)) {
+      authorCache = shared("authorCache", () -> new AuthorCache(cache));
+    }
   }
 
-  private JsonObject toPost(Row row) {
-    return new JsonObject()
-      .put("id", row.getInteger("id"))
-      .put("author_id", row.getInteger("author_id"))
-      .put("title", row.getString("title"))
-      .put("content", row.getString("content"));
+  private void setupInMemoryData(JsonObject config) {
+    JsonObject inMemory = config.getJsonObject("inMemory", new JsonObject());
+    if (inMemory.getBoolean("enabled", false)) {
+      String dataScript = inMemory.getString("dataScript", "../../postgres/scripts/99-data.sql");
+      String authorsData = inMemory.getString("authorsData", "../../backend/src/main/resources/authors.data");
+      inMemoryData = shared("inMemoryData", () -> new InMemoryData(
+        vertx.fileSystem().readFileBlocking(dataScript).toString(),
+        vertx.fileSystem().readFileBlocking(authorsData).toString()
+      ));
+    }
   }
 
-  private Future<Map<Integer, JsonArray>> findComments(Set<Integer> postIds, BatchLoaderEnvironment env) {
-    Promise<SqlResult<Map<Integer, JsonArray>>> promise = Promise.promise();
-    Collector<Row, ?, Map<Integer, JsonArray>> collector = groupingBy(
-      row -> row.getInteger("post_id"),
-      mapping(this::toComment, collectingAndThen(toList(), JsonArray::new))
-    );
-    pgClient.preparedQuery("select * from comments where post_id = any($1)", Tuple.of(postIds.toArray(new Integer[0])), collector, promise);
-    return promise.future().map(SqlResult::value);
+  private void setupQueryCost(JsonObject config) {
+    JsonObject cost = config.getJsonObject("queryCost", new JsonObject());
+    if (cost.getBoolean("enabled", false)) {
+      queryCost = shared("queryCost", () -> new QueryCostInstrumentation(cost, DATA_SOURCE_FIELDS));
+    }
   }
 
-  private Future<JsonArray> findComments(Integer authorId, DataFetchingEnvironment env) {
-    Promise<SqlResult<JsonArray>> promise = Promise.promise();
-    Collector<Row, ?, JsonArray> collector = mapping(this::toComment, collectingAndThen(toList(), JsonArray::new));
-    pgClient.preparedQuery("select * from comments where author_id = $1", Tuple.of(authorId), collector, promise);
-    return promise.future().map(SqlResult::value);
+  private <T extends Shareable> T shared(String name, Supplier<T> supplier) {
+    LocalMap<String, T> map = vertx.sharedData().getLocalMap(name);
+    return map.computeIfAbsent(name, k -> supplier.get());
   }
 
-  private JsonObject toComment(Row row) {
-    return new JsonObject()
-      .put("post_id", row.getInteger("post_id"))
-      .put("author_id", row.getInteger("author_id"))
-      .put("content", row.getString("content"));
+  private GraphQL createGraphQL(GraphQLSchema graphQLSchema, boolean traced) {
+    GraphQL.Builder builder = GraphQL.newGraphQL(graphQLSchema);
+    if (documentCache != null) {
+      builder.preparsedDocumentProvider(documentCache);
+    }
+    List<Instrumentation> instrumentations = new ArrayList<>();
+    if (queryCost != null) {
+      instrumentations.add(queryCost);
+    }
+    if (metrics != null) {
+      instrumentations.add(new MetricsInstrumentation(meterRegistry));
+    }
+    if (traced) {
+      instrumentations.add(new TraceInstrumentation());
+    } else if (responseCache != null) {
+      // Traced requests bypass the response cache
+      instrumentations.add(new ResponseCacheInstrumentation());
+    }
+    if (!instrumentations.isEmpty()) {
+      builder.instrumentation(new ChainedInstrumentation(instrumentations));
+    }
+    return builder.build();
   }
 
-  private <T> CompletableFuture<T> toCompletableFuture(Future<T> future) {
-    CompletableFuture<T> cf = new CompletableFuture<>();
-    future.setHandler(ar -> {
-      if (ar.succeeded()) {
-        cf.complete(ar.result());
-      } else {
-        cf.completeExceptionally(ar.cause());
-      }
-    });
-    return cf;
+  private void sendStats(RoutingContext rc) {
+    JsonObject stats = new JsonObject();
+    if (documentCache != null) {
+      stats.put("documentCache", documentCache.stats());
+    }
+    if (persistedQueries != null) {
+      stats.put("persistedQueries", persistedQueries.stats());
+    }
+    if (responseCache != null) {
+      stats.put("responseCache", responseCache.stats());
+    }
+    if (dataCache != null) {
+      stats.put("dataCache", dataCache.stats());
+    }
+    if (authorCache != null) {
+      stats.put("authorCache", authorCache.stats());
+    }
+    if (queryCost != null) {
+      stats.put("queryCost", queryCost.stats());
+    }
+    rc.response()
+      .putHeader("content-type", "application/json")
+      .end(stats.toBuffer());
   }
 }
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.vertx;
+
+import graphql.ExecutionResult;
+import graphql.ExecutionResultImpl;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationCreateStateParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationFieldFetchParameters;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.concurrent.CompletableFuture;
+
+import static graphql.execution.instrumentation.SimpleInstrumentationContext.whenCompleted;
+
+/**
+ * Records field fetch timings in the {@link RequestTrace} of the request, and adds the trace to the response extensions.
+ * <p>
+ * Only installed on the {@link graphql.GraphQL} instance used for traced requests.
+ */
+public class TraceInstrumentation extends SimpleInstrumentation {
+
+  @Override
+  public InstrumentationState createState(InstrumentationCreateStateParameters parameters) {
+    RoutingContext rc = (RoutingContext) parameters.getExecutionInput().getContext();
+    return rc.get(RequestTrace.KEY);
+  }
+
+  @Override
+  public InstrumentationContext<Object> beginFieldFetch(InstrumentationFieldFetchParameters parameters) {
+    RequestTrace trace = parameters.getInstrumentationState();
+    if (trace == null) {
+      return super.beginFieldFetch(parameters);
+    }
+    String path = parameters.getExecutionStepInfo().getPath().toString();
+    long start = System.nanoTime();
+    return whenCompleted((result, throwable) -> trace.field(path, start, System.nanoTime()));
+  }
+
+  @Override
+  public CompletableFuture<ExecutionResult> instrumentExecutionResult(ExecutionResult executionResult, InstrumentationExecutionParameters parameters) {
+    RequestTrace trace = parameters.getInstrumentationState();
+    if (trace == null) {
+      return super.instrumentExecutionResult(executionResult, parameters);
+    }
+    return CompletableFuture.completedFuture(ExecutionResultImpl.newExecutionResult()
+      .from(executionResult)
+      .addExtension(RequestTrace.KEY, trace.toJson())
+      .build());
+  }
+}
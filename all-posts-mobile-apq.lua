@@ -0,0 +1,24 @@
+require("report")
+
+-- Automatic persisted query: the query text is only sent with the first request of each thread, to register it
+wrk.headers["Accept"] = "application/json"
+
+registration = [[{"query":"{\n  posts {\n    author {\n      firstName\n      lastName\n    }\n    title\n    content\n  }\n}","extensions":{"persistedQuery":{"version":1,"sha256Hash":"78cdd9482ee21d005441b99e82a4b43ae4fd6f74624e16dc1159b906fc899513"}}}]]
+path = wrk.path.."?extensions=%7B%22persistedQuery%22%3A%7B%22version%22%3A1%2C%22sha256Hash%22%3A%2278cdd9482ee21d005441b99e82a4b43ae4fd6f74624e16dc1159b906fc899513%22%7D%7D"
+
+registered = false
+
+request = function()
+   if not registered then
+      registered = true
+      return wrk.format("POST", nil, {["Content-Type"] = "application/json"}, registration)
+   end
+   return wrk.format("GET", path)
+end
+
+done = function(summary, latency, requests)
+   local filename = os.getenv("REPORT_FILE")
+   if filename~=nil then
+      report(filename, summary, latency, requests)
+   end
+end
@@ -0,0 +1,27 @@
+require("report")
+
+-- Automatic persisted query: the query text is only sent with the first request of each thread, to register it
+wrk.headers["Accept"] = "application/json"
+
+registration = [[{"query":"query ($authorId: Int!) {\n  author(id: $authorId) {\n    firstName\n    lastName\n    bio\n    posts {\n      title\n    }\n  }\n}","variables":{"authorId": 1},"extensions":{"persistedQuery":{"version":1,"sha256Hash":"051a35bbd7cd158c77456b531a25e9b5148e8d3052e1ab78cbf4cad2a6e7742d"}}}]]
+extensions = "%7B%22persistedQuery%22%3A%7B%22version%22%3A1%2C%22sha256Hash%22%3A%22051a35bbd7cd158c77456b531a25e9b5148e8d3052e1ab78cbf4cad2a6e7742d%22%7D%7D"
+
+counter = 1
+registered = false
+
+request = function()
+   if not registered then
+      registered = true
+      return wrk.format("POST", nil, {["Content-Type"] = "application/json"}, registration)
+   end
+   local path = wrk.path.."?extensions="..extensions.."&variables=%7B%22authorId%22%3A"..counter.."%7D"
+   counter = counter < 10 and (counter + 1) or 1
+   return wrk.format("GET", path)
+end
+
+done = function(summary, latency, requests)
+   local filename = os.getenv("REPORT_FILE")
+   if filename~=nil then
+      report(filename, summary, latency, requests)
+   end
+end
@@ -17,7 +17,13 @@
 package com.github.graphql.server.benchmark.backend;
 
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Promise;
+import io.vertx.core.WorkerExecutor;
 import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.parsetools.RecordParser;
 import io.vertx.core.shareddata.LocalMap;
@@ -26,12 +32,21 @@ import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.ResponseContentTypeHandler;
 
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class BackendVerticle extends AbstractVerticle {
 
+  private static final String AUTHOR_PATH = "/author/";
+  private static final String AUTHORS_PATH = "/authors";
+  private static final AtomicInteger INSTANCE_COUNTER = new AtomicInteger();
+
   private LocalMap<Integer, Buffer> authors;
-  private long delay;
+  private PreEncodedAuthors preEncodedAuthors;
+  private SimulatedRoute authorRoute;
+  private SimulatedRoute authorsRoute;
   private int burnCpuMicros;
-  private long iterationsForOneMilli;
+  private WorkerExecutor cpuWorkers;
 
   @Override
   public void start() throws Exception {
@@ -39,24 +54,64 @@ public class BackendVerticle extends AbstractVerticle {
 
     JsonObject config = config();
     int port = config.getInteger("port", 8181);
-    delay = config.getLong("delay", 2L);
+    setupRoutes(config);
     burnCpuMicros = config.getInteger("burnCpuMicros", 500);
+    int burnCpuWorkers = config.getInteger("burnCpuWorkers", 0);
     if (burnCpuMicros > 0) {
-      iterationsForOneMilli = Utils.calibrateBlackhole();
+      if (burnCpuWorkers > 0) {
+        // Shared by all the verticle instances, worker threads are calibrated on their first burn
+        cpuWorkers = vertx.createSharedWorkerExecutor("cpu-burn", burnCpuWorkers);
+      } else {
+        CpuBurner.calibrate();
+      }
     }
 
     loadData();
 
+    HttpServer server = vertx.createHttpServer();
+    if (config.getBoolean("preEncoded", true)) {
+      preEncodedAuthors = new PreEncodedAuthors(authors);
+      server.requestHandler(this::handlePreEncoded);
+    } else {
+      server.requestHandler(createRouter());
+    }
+    server.listen(port);
+  }
+
+  private void setupRoutes(JsonObject config) {
+    JsonObject defaultLatency = new JsonObject()
+      .put("model", "constant")
+      .put("delay", config.getLong("delay", 2L));
+    // Each instance draws its own sequence, reproducible for a given seed and number of instances
+    long seed = config.getLong("seed", System.nanoTime()) + INSTANCE_COUNTER.getAndIncrement();
+    Random seeds = new Random(seed);
+    JsonObject routes = config.getJsonObject("routes", new JsonObject());
+    authorRoute = new SimulatedRoute(vertx, routeConfig(routes, "author", defaultLatency), seeds.nextLong());
+    authorsRoute = new SimulatedRoute(vertx, routeConfig(routes, "authors", defaultLatency), seeds.nextLong());
+  }
+
+  private static JsonObject routeConfig(JsonObject routes, String name, JsonObject defaultLatency) {
+    JsonObject route = routes.getJsonObject(name, new JsonObject()).copy();
+    if (!route.containsKey("latency")) {
+      route.put("latency", defaultLatency);
+    }
+    return route;
+  }
+
+  private Router createRouter() {
     Router router = Router.router(vertx);
 
     Route route = router.get("/author/:id").produces("application/json");
     route.handler(ResponseContentTypeHandler.create());
-    route.handler(this::delayResponse);
+    route.handler(rc -> delay(authorRoute, rc.response(), rc::next));
     route.handler(this::getAuthor);
 
-    vertx.createHttpServer()
-      .requestHandler(router)
-      .listen(port);
+    Route batchRoute = router.get("/authors").produces("application/json");
+    batchRoute.handler(ResponseContentTypeHandler.create());
+    batchRoute.handler(rc -> delay(authorsRoute, rc.response(), rc::next));
+    batchRoute.handler(this::getAuthors);
+
+    return router;
   }
 
   private void loadData() {
@@ -74,12 +129,34 @@ public class BackendVerticle extends AbstractVerticle {
     parser.handle(csv);
   }
 
-  private void delayResponse(RoutingContext rc) {
-    vertx.setTimer(delay, l -> rc.next());
-    if (burnCpuMicros > 0) {
-      final long targetDelay = Utils.ONE_MICRO_IN_NANO * burnCpuMicros;
-      long numIters = Math.round(targetDelay * 1.0 * iterationsForOneMilli / Utils.ONE_MILLI_IN_NANO);
-      Utils.blackholeCpu(numIters);
+  private void handlePreEncoded(HttpServerRequest request) {
+    // Routes are matched on the raw URI, so that no path or query parameter is allocated
+    String uri = request.uri();
+    if (request.method() != HttpMethod.GET) {
+      request.response().setStatusCode(405).end();
+    } else if (uri.startsWith(AUTHOR_PATH)) {
+      delay(authorRoute, request.response(), () -> preEncodedAuthors.sendAuthor(request.response(), uri, AUTHOR_PATH.length()));
+    } else if (uri.startsWith(AUTHORS_PATH) && (uri.length() == AUTHORS_PATH.length() || uri.charAt(AUTHORS_PATH.length()) == '?')) {
+      delay(authorsRoute, request.response(), () -> preEncodedAuthors.sendAuthors(request.response(), uri));
+    } else {
+      request.response().setStatusCode(404).end();
+    }
+  }
+
+  private void delay(SimulatedRoute route, HttpServerResponse response, Runnable send) {
+    if (burnCpuMicros == 0) {
+      route.respond(response, send);
+    } else if (cpuWorkers == null) {
+      route.respond(response, send);
+      CpuBurner.burn(burnCpuMicros);
+    } else {
+      // The response is sent when both the simulated latency and the CPU burn are over
+      Promise<Void> burnt = Promise.promise();
+      cpuWorkers.<Void>executeBlocking(promise -> {
+        CpuBurner.burn(burnCpuMicros);
+        promise.complete();
+      }, false, burnt);
+      route.respond(response, () -> burnt.future().setHandler(ar -> send.run()));
     }
   }
 
@@ -92,4 +169,32 @@ public class BackendVerticle extends AbstractVerticle {
       rc.response().end(author);
     }
   }
+
+  private void getAuthors(RoutingContext rc) {
+    String ids = rc.request().getParam("ids");
+    if (ids == null) {
+      rc.response().setStatusCode(400).end();
+      return;
+    }
+    Buffer body = Buffer.buffer().appendByte((byte) '[');
+    boolean first = true;
+    for (String id : ids.split(",")) {
+      Integer authorId;
+      try {
+        authorId = Integer.valueOf(id.trim());
+      } catch (NumberFormatException e) {
+        rc.response().setStatusCode(400).end();
+        return;
+      }
+      Buffer author = authors.get(authorId);
+      if (author != null) {
+        if (!first) {
+          body.appendByte((byte) ',');
+        }
+        body.appendBuffer(author);
+        first = false;
+      }
+    }
+    rc.response().end(body.appendByte((byte) ']'));
+  }
 }
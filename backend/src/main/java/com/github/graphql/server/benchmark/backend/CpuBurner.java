@@ -0,0 +1,66 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.backend;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Burns a configured amount of CPU time with {@link Utils#blackholeCpu(long)}, on any thread.
+ * <p>
+ * {@link Utils#calibrateBlackhole()} is run once per thread, on its first burn, and the CPU time actually spent is
+ * recorded, to compare with the configured time.
+ */
+class CpuBurner {
+
+  private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+  private static final ThreadLocal<Long> ITERATIONS_FOR_ONE_MILLI = ThreadLocal.withInitial(Utils::calibrateBlackhole);
+
+  private static final LongAdder BURNS = new LongAdder();
+  private static final LongAdder CONFIGURED_NANOS = new LongAdder();
+  private static final LongAdder ACHIEVED_NANOS = new LongAdder();
+
+  private CpuBurner() {
+    // Utility
+  }
+
+  /**
+   * Calibrates the current thread, so that its first burn does not pay for it.
+   */
+  static void calibrate() {
+    ITERATIONS_FOR_ONE_MILLI.get();
+  }
+
+  static void burn(int micros) {
+    long iterationsForOneMilli = ITERATIONS_FOR_ONE_MILLI.get();
+    long targetDelay = Utils.ONE_MICRO_IN_NANO * micros;
+    long numIters = Math.round(targetDelay * 1.0 * iterationsForOneMilli / Utils.ONE_MILLI_IN_NANO);
+    long start = THREAD_BEAN.getCurrentThreadCpuTime();
+    Utils.blackholeCpu(numIters);
+    ACHIEVED_NANOS.add(THREAD_BEAN.getCurrentThreadCpuTime() - start);
+    CONFIGURED_NANOS.add(targetDelay);
+    BURNS.increment();
+  }
+
+  /**
+   * Resets the counters and returns their values: number of burns, configured and achieved CPU time in nanoseconds.
+   */
+  static long[] sumThenReset() {
+    return new long[]{BURNS.sumThenReset(), CONFIGURED_NANOS.sumThenReset(), ACHIEVED_NANOS.sumThenReset()};
+  }
+}
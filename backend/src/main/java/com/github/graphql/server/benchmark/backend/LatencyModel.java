@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.backend;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.Random;
+
+/**
+ * Draws response delays, in milliseconds, from a distribution.
+ */
+@FunctionalInterface
+public interface LatencyModel {
+
+  double nextDelay(Random random);
+
+  /**
+   * Creates a model from its configuration, the {@code model} key selects the distribution:
+   * <ul>
+   * <li>{@code constant}: always {@code delay}</li>
+   * <li>{@code uniform}: between {@code min} and {@code max}</li>
+   * <li>{@code lognormal}: log-normal with the given {@code median} and {@code sigma} (the standard deviation of the log)</li>
+   * <li>{@code pareto}: Pareto with the given {@code scale} (the minimum delay) and {@code shape} (the lower, the longer the tail)</li>
+   * <li>{@code bimodal}: the {@code spike} model with probability {@code spikeProbability}, the {@code base} model otherwise</li>
+   * </ul>
+   * Any model can be capped with {@code cap}.
+   */
+  static LatencyModel create(JsonObject config) {
+    String model = config.getString("model", "constant");
+    LatencyModel latencyModel;
+    switch (model) {
+      case "constant": {
+        double delay = config.getDouble("delay", 2D);
+        latencyModel = random -> delay;
+        break;
+      }
+      case "uniform": {
+        double min = config.getDouble("min", 0D);
+        double range = required(config, model, "max") - min;
+        latencyModel = random -> min + range * random.nextDouble();
+        break;
+      }
+      case "lognormal": {
+        double mu = Math.log(required(config, model, "median"));
+        double sigma = config.getDouble("sigma", 1D);
+        latencyModel = random -> Math.exp(mu + sigma * random.nextGaussian());
+        break;
+      }
+      case "pareto": {
+        double scale = required(config, model, "scale");
+        double exponent = 1 / config.getDouble("shape", 2D);
+        latencyModel = random -> scale / Math.pow(1 - random.nextDouble(), exponent);
+        break;
+      }
+      case "bimodal": {
+        LatencyModel base = create(requiredModel(config, model, "base"));
+        LatencyModel spike = create(requiredModel(config, model, "spike"));
+        double spikeProbability = required(config, model, "spikeProbability");
+        latencyModel = random -> random.nextDouble() < spikeProbability ? spike.nextDelay(random) : base.nextDelay(random);
+        break;
+      }
+      default:
+        throw new IllegalArgumentException("Unknown latency model: " + model);
+    }
+    Double cap = config.getDouble("cap");
+    if (cap == null) {
+      return latencyModel;
+    }
+    return random -> Math.min(cap, latencyModel.nextDelay(random));
+  }
+
+  static double required(JsonObject config, String model, String key) {
+    Double value = config.getDouble(key);
+    if (value == null) {
+      throw new IllegalArgumentException("Missing " + key + " for " + model + " latency model");
+    }
+    return value;
+  }
+
+  static JsonObject requiredModel(JsonObject config, String model, String key) {
+    JsonObject value = config.getJsonObject(key);
+    if (value == null) {
+      throw new IllegalArgumentException("Missing " + key + " for " + model + " latency model");
+    }
+    return value;
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.backend;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/**
+ * Deploys one {@link BackendVerticle} instance per event loop, by default as many as available processors, and
+ * periodically reports the CPU time achieved by simulated work against the configured time.
+ * <p>
+ * The number of instances can be overridden with the {@code BACKEND_INSTANCES} environment variable.
+ */
+public class MainVerticle extends AbstractVerticle {
+
+  private static final Logger log = LoggerFactory.getLogger(MainVerticle.class);
+
+  @Override
+  public void start(Promise<Void> startPromise) {
+    JsonObject config = config();
+    int defaultInstances = config.getInteger("instances", Runtime.getRuntime().availableProcessors());
+    String instances = System.getenv().getOrDefault("BACKEND_INSTANCES", String.valueOf(defaultInstances));
+
+    DeploymentOptions deploymentOptions = new DeploymentOptions()
+      .setConfig(config)
+      .setInstances(Integer.parseInt(instances));
+    vertx.deployVerticle(BackendVerticle.class.getName(), deploymentOptions, ar -> {
+      if (ar.succeeded()) {
+        long reportInterval = config.getLong("burnCpuReportInterval", 10000L);
+        if (config.getInteger("burnCpuMicros", 500) > 0 && reportInterval > 0) {
+          vertx.setPeriodic(reportInterval, l -> reportCpuBurn(config.getInteger("burnCpuWorkers", 0)));
+        }
+        startPromise.complete();
+      } else {
+        startPromise.fail(ar.cause());
+      }
+    });
+  }
+
+  private void reportCpuBurn(int workers) {
+    long[] stats = CpuBurner.sumThenReset();
+    long burns = stats[0];
+    if (burns == 0) {
+      return;
+    }
+    long configured = stats[1] / burns / Utils.ONE_MICRO_IN_NANO;
+    long achieved = stats[2] / burns / Utils.ONE_MICRO_IN_NANO;
+    log.info(String.format("CPU burn on %s: %d requests, configured %d us, achieved %d us (%.1f%%)",
+      workers > 0 ? workers + " workers" : "event loops", burns, configured, achieved, 100.0 * stats[2] / stats[1]));
+  }
+}
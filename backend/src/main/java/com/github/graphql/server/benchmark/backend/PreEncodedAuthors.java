@@ -0,0 +1,162 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.backend;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Author response bodies encoded once, in a table indexed by author identifier, along with their content length header.
+ * <p>
+ * Bodies are unreleasable direct buffers, written to the connection without copying. Batch responses are composite
+ * buffers of the requested bodies. Identifiers are parsed from the request URI without allocating.
+ */
+class PreEncodedAuthors {
+
+  private static final CharSequence APPLICATION_JSON = HttpHeaders.createOptimized("application/json");
+  private static final ByteBuf OPEN = encode("[");
+  private static final ByteBuf COMMA = encode(",");
+  private static final ByteBuf CLOSE = encode("]");
+  private static final int MAX_DIGITS = 9;
+
+  private final ByteBuf[] bodies;
+  private final CharSequence[] contentLengths;
+
+  PreEncodedAuthors(Map<Integer, Buffer> authors) {
+    int maxId = authors.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+    bodies = new ByteBuf[maxId + 1];
+    contentLengths = new CharSequence[maxId + 1];
+    authors.forEach((id, author) -> {
+      bodies[id] = Unpooled.unreleasableBuffer(Unpooled.directBuffer(author.length()).writeBytes(author.getBytes()));
+      contentLengths[id] = HttpHeaders.createOptimized(String.valueOf(author.length()));
+    });
+  }
+
+  /**
+   * Sends the author whose identifier ends the {@code uri}, from {@code start}.
+   */
+  void sendAuthor(HttpServerResponse response, String uri, int start) {
+    int id = parseId(uri, start, uri.length());
+    if (id < 0) {
+      response.setStatusCode(400).end();
+      return;
+    }
+    if (id >= bodies.length || bodies[id] == null) {
+      response.setStatusCode(404).end();
+      return;
+    }
+    response
+      .putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON)
+      .putHeader(HttpHeaders.CONTENT_LENGTH, contentLengths[id])
+      .end(Buffer.buffer(bodies[id]));
+  }
+
+  /**
+   * Sends the array of the authors listed in the {@code ids} query parameter of the {@code uri}, unknown identifiers
+   * are ignored.
+   */
+  void sendAuthors(HttpServerResponse response, String uri) {
+    int pos = paramValue(uri, "ids=");
+    if (pos < 0) {
+      response.setStatusCode(400).end();
+      return;
+    }
+    // No component limit, so that bodies are never consolidated (copied)
+    CompositeByteBuf body = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+    body.addComponent(true, OPEN.duplicate());
+    boolean first = true;
+    while (true) {
+      int end = pos;
+      while (end < uri.length() && end - pos <= MAX_DIGITS && Character.isDigit(uri.charAt(end))) {
+        end++;
+      }
+      int id = parseId(uri, pos, end);
+      if (id < 0) {
+        body.release();
+        response.setStatusCode(400).end();
+        return;
+      }
+      if (id < bodies.length && bodies[id] != null) {
+        if (!first) {
+          body.addComponent(true, COMMA.duplicate());
+        }
+        body.addComponent(true, bodies[id].duplicate());
+        first = false;
+      }
+      if (end == uri.length() || uri.charAt(end) == '&') {
+        break;
+      }
+      // The Vert.x web client encodes the separator
+      if (uri.charAt(end) == ',') {
+        pos = end + 1;
+      } else if (uri.regionMatches(true, end, "%2C", 0, 3)) {
+        pos = end + 3;
+      } else {
+        body.release();
+        response.setStatusCode(400).end();
+        return;
+      }
+    }
+    body.addComponent(true, CLOSE.duplicate());
+    response
+      .putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON)
+      .end(Buffer.buffer(body), ar -> body.release());
+  }
+
+  /**
+   * @return the identifier between {@code start} and {@code end}, or {@code -1} if it is not a number
+   */
+  private static int parseId(String uri, int start, int end) {
+    if (start == end || end - start > MAX_DIGITS) {
+      return -1;
+    }
+    int id = 0;
+    for (int i = start; i < end; i++) {
+      char c = uri.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      id = id * 10 + (c - '0');
+    }
+    return id;
+  }
+
+  /**
+   * @return the position of the value of the query parameter named {@code prefix}, or {@code -1} if it is absent
+   */
+  private static int paramValue(String uri, String prefix) {
+    int pos = uri.indexOf('?');
+    while (pos >= 0) {
+      if (uri.startsWith(prefix, pos + 1)) {
+        return pos + 1 + prefix.length();
+      }
+      pos = uri.indexOf('&', pos + 1);
+    }
+    return -1;
+  }
+
+  private static ByteBuf encode(String s) {
+    return Unpooled.unreleasableBuffer(Unpooled.directBuffer().writeBytes(s.getBytes(StandardCharsets.UTF_8)));
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.backend;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Random;
+
+/**
+ * Delays the responses of a route according to its {@link LatencyModel}, and injects faults:
+ * <ul>
+ * <li>with probability {@code errorRate}, the response is a {@code 500} error, sent after the drawn delay</li>
+ * <li>with probability {@code timeoutRate}, no response is sent and the connection is closed after {@code timeoutDelay}
+ * milliseconds, so that clients with a shorter timeout give up first</li>
+ * </ul>
+ */
+class SimulatedRoute {
+
+  private final Vertx vertx;
+  private final Random random;
+  private final LatencyModel latencyModel;
+  private final double errorRate;
+  private final double timeoutRate;
+  private final long timeoutDelay;
+
+  SimulatedRoute(Vertx vertx, JsonObject config, long seed) {
+    this.vertx = vertx;
+    this.random = new Random(seed);
+    this.latencyModel = LatencyModel.create(config.getJsonObject("latency"));
+    this.errorRate = config.getDouble("errorRate", 0D);
+    this.timeoutRate = config.getDouble("timeoutRate", 0D);
+    this.timeoutDelay = config.getLong("timeoutDelay", 60000L);
+  }
+
+  void respond(HttpServerResponse response, Runnable send) {
+    double fault = random.nextDouble();
+    if (fault < timeoutRate) {
+      vertx.setTimer(timeoutDelay, l -> response.close());
+      return;
+    }
+    Runnable action = fault < timeoutRate + errorRate ? () -> response.setStatusCode(500).end() : send;
+    long delay = Math.round(latencyModel.nextDelay(random));
+    if (delay < 1) {
+      action.run();
+    } else {
+      vertx.setTimer(delay, l -> action.run());
+    }
+  }
+}
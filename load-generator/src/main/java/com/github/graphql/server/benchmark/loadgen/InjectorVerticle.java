@@ -0,0 +1,182 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.loadgen;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.net.SocketAddress;
+import org.HdrHistogram.Histogram;
+
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends requests at a constant rate, whatever the response times (open model), and records their latencies.
+ * <p>
+ * The corrected latency of a request is measured from the time it was scheduled, so that a stalled server is charged
+ * for every request it delayed (coordinated omission). Requests which find no free connection wait in the client
+ * queue, and their latency includes the wait. The uncorrected latency is measured from the time the request was
+ * handed to the client: it only differs from the corrected one when the injector itself falls behind schedule.
+ * <p>
+ * The time to first byte is measured, like the corrected latency, from the time the request was scheduled to the time
+ * the response headers are received. Servers send them with the first bytes of the body, so for incremental responses
+ * ({@code multipart/mixed}), it tells when the client can start rendering.
+ * <p>
+ * Histograms are only updated on the verticle event loop, and must be read after {@link #completion()}.
+ */
+class InjectorVerticle extends AbstractVerticle {
+
+  private final List<Buffer> bodies;
+  private final Promise<Void> completion = Promise.promise();
+
+  final Histogram corrected = new Histogram(3);
+  final Histogram uncorrected = new Histogram(3);
+  final Histogram firstByte = new Histogram(3);
+  long errors;
+  long elapsed;
+
+  private HttpClient client;
+  private String host;
+  private int port;
+  private SocketAddress server;
+  private String uri;
+  private String accept;
+  private long timeout;
+  private long intervalNanos;
+  private long startTime;
+  private long measureStart;
+  private long total;
+  private long scheduled;
+  private int inFlight;
+  private boolean stopped;
+
+  InjectorVerticle(List<Buffer> bodies) {
+    this.bodies = bodies;
+  }
+
+  Future<Void> completion() {
+    return completion.future();
+  }
+
+  @Override
+  public void start() throws Exception {
+    JsonObject config = config();
+    URL url = new URL(config.getString("url"));
+    host = url.getHost();
+    port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+    server = SocketAddress.inetSocketAddress(port, host);
+    uri = url.getFile();
+    timeout = config.getLong("timeout");
+    accept = config.getString("accept");
+    client = vertx.createHttpClient(new HttpClientOptions()
+      .setMaxPoolSize(config.getInteger("connections"))
+      .setKeepAlive(true));
+
+    double rate = config.getDouble("rate");
+    long warmup = TimeUnit.SECONDS.toNanos(config.getLong("warmup"));
+    long duration = TimeUnit.SECONDS.toNanos(config.getLong("duration"));
+    intervalNanos = Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / rate));
+    total = (warmup + duration) / intervalNanos;
+    startTime = System.nanoTime();
+    measureStart = startTime + warmup;
+
+    vertx.setPeriodic(1, this::schedule);
+  }
+
+  private void schedule(long timerId) {
+    long due = Math.min(total, (System.nanoTime() - startTime) / intervalNanos + 1);
+    while (scheduled < due) {
+      send(startTime + scheduled * intervalNanos, bodies.get((int) (scheduled % bodies.size())));
+      scheduled++;
+    }
+    if (scheduled == total) {
+      vertx.cancelTimer(timerId);
+      stopped = true;
+      checkCompletion();
+    }
+  }
+
+  private void send(long scheduledTime, Buffer body) {
+    inFlight++;
+    Exchange exchange = new Exchange(scheduledTime, System.nanoTime());
+    // The overloads without a server address are deprecated
+    client.request(HttpMethod.POST, server, port, host, uri, response -> receive(exchange, response))
+      .putHeader("Accept", accept)
+      .putHeader("Content-Type", "application/json")
+      .setTimeout(timeout)
+      .exceptionHandler(t -> complete(exchange, false))
+      .end(body);
+  }
+
+  private void receive(Exchange exchange, HttpClientResponse response) {
+    exchange.firstByteTime = System.nanoTime();
+    boolean success = response.statusCode() == 200;
+    response
+      .exceptionHandler(t -> complete(exchange, false))
+      .endHandler(v -> complete(exchange, success));
+  }
+
+  private void complete(Exchange exchange, boolean success) {
+    // A request may fail after its response has ended, e.g. when the connection is closed
+    if (exchange.completed) {
+      return;
+    }
+    exchange.completed = true;
+    inFlight--;
+    if (exchange.scheduledTime >= measureStart) {
+      long now = System.nanoTime();
+      corrected.recordValue(TimeUnit.NANOSECONDS.toMicros(now - exchange.scheduledTime));
+      uncorrected.recordValue(TimeUnit.NANOSECONDS.toMicros(now - exchange.sendTime));
+      if (exchange.firstByteTime != 0) {
+        firstByte.recordValue(TimeUnit.NANOSECONDS.toMicros(exchange.firstByteTime - exchange.scheduledTime));
+      }
+      if (!success) {
+        errors++;
+      }
+      elapsed = now - measureStart;
+    }
+    checkCompletion();
+  }
+
+  private void checkCompletion() {
+    if (stopped && inFlight == 0) {
+      client.close();
+      completion.tryComplete();
+    }
+  }
+
+  private static class Exchange {
+
+    final long scheduledTime;
+    final long sendTime;
+    long firstByteTime;
+    boolean completed;
+
+    Exchange(long scheduledTime, long sendTime) {
+      this.scheduledTime = scheduledTime;
+      this.sendTime = sendTime;
+    }
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.loadgen;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import org.HdrHistogram.Histogram;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs an open model load test: requests are sent at a constant rate by several {@link InjectorVerticle} instances,
+ * then their latency histograms are merged and reported.
+ */
+public class LoadGeneratorVerticle extends AbstractVerticle {
+
+  private static final String CSV_HEADER = "rate,requests,duration,errors,throughput,min,mean,50%,90%,99%,99.9%,99.99%,max,ttfb 50%,ttfb 99%";
+
+  private final List<InjectorVerticle> injectors = new ArrayList<>();
+
+  private double rate;
+  private String histogramFile;
+  private String csvFile;
+
+  @Override
+  public void start(Promise<Void> startPromise) throws Exception {
+    JsonObject config = config();
+    rate = config.getDouble("rate", 1000D);
+    long duration = config.getLong("duration", 60L);
+    histogramFile = config.getString("histogramFile");
+    csvFile = config.getString("csvFile");
+    int threads = config.getInteger("threads", Runtime.getRuntime().availableProcessors());
+    int connections = config.getInteger("connections", 256);
+
+    String scenario = config.getString("scenario", "all-posts-desktop");
+    List<Buffer> bodies = loadBodies(config, scenario);
+
+    JsonObject injectorConfig = new JsonObject()
+      .put("url", config.getString("url", "http://localhost:8080/graphql"))
+      .put("accept", config.getString("accept", config.containsKey("requestsFile") ? "application/json" : Scenarios.accept(scenario)))
+      .put("rate", rate / threads)
+      .put("warmup", config.getLong("warmup", 10L))
+      .put("duration", duration)
+      .put("connections", Math.max(1, connections / threads))
+      .put("timeout", config.getLong("timeout", 10000L));
+
+    List<Future> deployments = new ArrayList<>(threads);
+    for (int i = 0; i < threads; i++) {
+      InjectorVerticle injector = new InjectorVerticle(bodies);
+      injectors.add(injector);
+      Promise<String> deployment = Promise.promise();
+      vertx.deployVerticle(injector, new DeploymentOptions().setConfig(injectorConfig), deployment);
+      deployments.add(deployment.future());
+    }
+    CompositeFuture.all(deployments).<Void>mapEmpty().setHandler(startPromise);
+
+    List<Future> completions = new ArrayList<>(threads);
+    injectors.forEach(injector -> completions.add(injector.completion()));
+    CompositeFuture.all(completions).setHandler(ar -> vertx.<Void>executeBlocking(promise -> {
+      try {
+        report();
+        promise.complete();
+      } catch (IOException e) {
+        promise.fail(e);
+      }
+    }, report -> {
+      if (report.failed()) {
+        report.cause().printStackTrace();
+      }
+      vertx.close();
+    }));
+  }
+
+  private List<Buffer> loadBodies(JsonObject config, String scenario) {
+    String requestsFile = config.getString("requestsFile");
+    if (requestsFile == null) {
+      return Scenarios.bodies(scenario);
+    }
+    List<Buffer> bodies = new ArrayList<>();
+    for (String line : vertx.fileSystem().readFileBlocking(requestsFile).toString().split("\n")) {
+      if (!line.trim().isEmpty()) {
+        bodies.add(new JsonObject(line).toBuffer());
+      }
+    }
+    if (bodies.isEmpty()) {
+      throw new IllegalArgumentException("No request in " + requestsFile);
+    }
+    return bodies;
+  }
+
+  private void report() throws IOException {
+    Histogram corrected = new Histogram(3);
+    Histogram uncorrected = new Histogram(3);
+    Histogram firstByte = new Histogram(3);
+    long errors = 0;
+    long elapsed = 0;
+    for (InjectorVerticle injector : injectors) {
+      corrected.add(injector.corrected);
+      uncorrected.add(injector.uncorrected);
+      firstByte.add(injector.firstByte);
+      errors += injector.errors;
+      elapsed = Math.max(elapsed, injector.elapsed);
+    }
+    // Responses still come after the measurement period when the server is saturated
+    long requests = corrected.getTotalCount();
+    double throughput = requests * 1_000_000_000D / elapsed;
+
+    System.out.printf("Requests: %d, errors: %d, throughput: %.1f/s (target %.1f/s)%n", requests, errors, throughput, rate);
+    System.out.printf("Corrected latency (ms): p50 %.3f, p99 %.3f, p99.9 %.3f, max %.3f%n",
+      corrected.getValueAtPercentile(50) / 1000D, corrected.getValueAtPercentile(99) / 1000D,
+      corrected.getValueAtPercentile(99.9) / 1000D, corrected.getMaxValue() / 1000D);
+    System.out.printf("Uncorrected latency (ms): p50 %.3f, p99 %.3f, p99.9 %.3f, max %.3f%n",
+      uncorrected.getValueAtPercentile(50) / 1000D, uncorrected.getValueAtPercentile(99) / 1000D,
+      uncorrected.getValueAtPercentile(99.9) / 1000D, uncorrected.getMaxValue() / 1000D);
+    System.out.printf("Time to first byte (ms): p50 %.3f, p99 %.3f, p99.9 %.3f, max %.3f%n",
+      firstByte.getValueAtPercentile(50) / 1000D, firstByte.getValueAtPercentile(99) / 1000D,
+      firstByte.getValueAtPercentile(99.9) / 1000D, firstByte.getMaxValue() / 1000D);
+    if (throughput < 0.95 * rate) {
+      System.out.println("The target rate was not sustained, the server (or the load generator) is saturated");
+    }
+
+    if (histogramFile != null) {
+      writeHistogram(corrected, histogramFile);
+      writeHistogram(uncorrected, histogramFile.replaceFirst("(\\.hgrm)?$", ".uncorrected.hgrm"));
+    }
+    if (csvFile != null) {
+      boolean exists = new File(csvFile).exists();
+      try (PrintStream out = new PrintStream(new FileOutputStream(csvFile, true))) {
+        if (!exists) {
+          out.println(CSV_HEADER);
+        }
+        out.println(String.join(",",
+          String.valueOf(rate),
+          String.valueOf(requests),
+          String.valueOf(TimeUnit.NANOSECONDS.toMicros(elapsed)),
+          String.valueOf(errors),
+          String.format("%.1f", throughput),
+          String.valueOf(corrected.getMinValue()),
+          String.format("%.1f", corrected.getMean()),
+          String.valueOf(corrected.getValueAtPercentile(50)),
+          String.valueOf(corrected.getValueAtPercentile(90)),
+          String.valueOf(corrected.getValueAtPercentile(99)),
+          String.valueOf(corrected.getValueAtPercentile(99.9)),
+          String.valueOf(corrected.getValueAtPercentile(99.99)),
+          String.valueOf(corrected.getMaxValue()),
+          String.valueOf(firstByte.getValueAtPercentile(50)),
+          String.valueOf(firstByte.getValueAtPercentile(99))));
+      }
+    }
+  }
+
+  private static void writeHistogram(Histogram histogram, String file) throws IOException {
+    try (PrintStream out = new PrintStream(new FileOutputStream(file))) {
+      // Values are recorded in microseconds, percentiles are output in milliseconds
+      histogram.outputPercentileDistribution(out, 1000D);
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2019 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.graphql.server.benchmark.loadgen;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Request bodies of the benchmark scenarios, named after their {@code wrk} scripts (see {@code queries.adoc}).
+ */
+public class Scenarios {
+
+  static final String ALL_POSTS_DESKTOP = "{\n" +
+    "  posts {\n" +
+    "    author {\n" +
+    "      firstName\n" +
+    "      lastName\n" +
+    "    }\n" +
+    "    title\n" +
+    "    content\n" +
+    "    comments {\n" +
+    "      author {\n" +
+    "        firstName\n" +
+    "        lastName\n" +
+    "      }\n" +
+    "      content\n" +
+    "    }\n" +
+    "  }\n" +
+    "}";
+
+  /**
+   * Comments are the only nullable field of a post which needs a data source call, other fields cannot be deferred.
+   */
+  static final String ALL_POSTS_DESKTOP_DEFER = ALL_POSTS_DESKTOP.replace("comments {", "comments @defer {");
+
+  static final String ALL_POSTS_MOBILE = "{\n" +
+    "  posts {\n" +
+    "    author {\n" +
+    "      firstName\n" +
+    "      lastName\n" +
+    "    }\n" +
+    "    title\n" +
+    "    content\n" +
+    "  }\n" +
+    "}";
+
+  static final String AUTHOR_PROFILE_DESKTOP = "query ($authorId: Int!) {\n" +
+    "  author(id: $authorId) {\n" +
+    "    firstName\n" +
+    "    lastName\n" +
+    "    bio\n" +
+    "    posts {\n" +
+    "      title\n" +
+    "      content\n" +
+    "    }\n" +
+    "    comments {\n" +
+    "      post {\n" +
+    "       title\n" +
+    "      }\n" +
+    "      content\n" +
+    "    }\n" +
+    "  }\n" +
+    "}";
+
+  static final String AUTHOR_PROFILE_MOBILE = "query ($authorId: Int!) {\n" +
+    "  author(id: $authorId) {\n" +
+    "    firstName\n" +
+    "    lastName\n" +
+    "    bio\n" +
+    "    posts {\n" +
+    "      title\n" +
+    "    }\n" +
+    "  }\n" +
+    "}";
+
+  /**
+   * Author profile requests cycle through the 10 authors, like the {@code wrk} scripts.
+   */
+  private static final int AUTHORS = 10;
+
+  private Scenarios() {
+  }
+
+  public static List<Buffer> bodies(String scenario) {
+    switch (scenario) {
+      case "all-posts-desktop":
+        return Collections.singletonList(body(ALL_POSTS_DESKTOP, null));
+      case "all-posts-desktop-defer":
+        return Collections.singletonList(body(ALL_POSTS_DESKTOP_DEFER, null));
+      case "all-posts-mobile":
+        return Collections.singletonList(body(ALL_POSTS_MOBILE, null));
+      case "author-profile-desktop":
+        return authorProfiles(AUTHOR_PROFILE_DESKTOP);
+      case "author-profile-mobile":
+        return authorProfiles(AUTHOR_PROFILE_MOBILE);
+      default:
+        throw new IllegalArgumentException("Unknown scenario: " + scenario);
+    }
+  }
+
+  /**
+   * @return the {@code Accept} header of the scenario requests, incremental delivery for scenarios with {@code @defer}
+   */
+  public static String accept(String scenario) {
+    return scenario.endsWith("-defer") ? "multipart/mixed, application/json" : "application/json";
+  }
+
+  private static List<Buffer> authorProfiles(String query) {
+    List<Buffer> bodies = new ArrayList<>(AUTHORS);
+    for (int authorId = 1; authorId <= AUTHORS; authorId++) {
+      bodies.add(body(query, new JsonObject().put("authorId", authorId)));
+    }
+    return bodies;
+  }
+
+  private static Buffer body(String query, JsonObject variables) {
+    JsonObject body = new JsonObject().put("query", query);
+    if (variables != null) {
+      body.put("variables", variables);
+    }
+    return body.toBuffer();
+  }
+}
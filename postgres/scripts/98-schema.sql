@@ -6,6 +6,8 @@ CREATE TABLE posts
     title     VARCHAR NOT NULL,
     content   VARCHAR NOT NULL
 );
+CREATE UNIQUE INDEX posts_id ON posts (id);
+CREATE INDEX posts_author_id_id ON posts (author_id, id);
 
 DROP TABLE IF EXISTS comments;
 CREATE TABLE comments
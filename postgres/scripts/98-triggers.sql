@@ -0,0 +1,61 @@
+-- Notify the changed rows, so that servers can invalidate the posts and comments they cache
+-- An update notifies both the old and the new row, which may belong to different authors or posts
+-- A truncation notifies an empty object
+
+CREATE OR REPLACE FUNCTION notify_posts() RETURNS TRIGGER AS
+$$
+BEGIN
+    IF TG_OP = 'TRUNCATE' THEN
+        PERFORM pg_notify('posts', '{}');
+        RETURN NULL;
+    END IF;
+    IF TG_OP <> 'INSERT' THEN
+        PERFORM pg_notify('posts', json_build_object('id', OLD.id, 'author_id', OLD.author_id)::text);
+    END IF;
+    IF TG_OP <> 'DELETE' THEN
+        PERFORM pg_notify('posts', json_build_object('id', NEW.id, 'author_id', NEW.author_id)::text);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION notify_comments() RETURNS TRIGGER AS
+$$
+BEGIN
+    IF TG_OP = 'TRUNCATE' THEN
+        PERFORM pg_notify('comments', '{}');
+        RETURN NULL;
+    END IF;
+    IF TG_OP <> 'INSERT' THEN
+        PERFORM pg_notify('comments', json_build_object('post_id', OLD.post_id, 'author_id', OLD.author_id)::text);
+    END IF;
+    IF TG_OP <> 'DELETE' THEN
+        PERFORM pg_notify('comments', json_build_object('post_id', NEW.post_id, 'author_id', NEW.author_id)::text);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER posts_changed
+    AFTER INSERT OR UPDATE OR DELETE
+    ON posts
+    FOR EACH ROW
+EXECUTE PROCEDURE notify_posts();
+
+CREATE TRIGGER posts_truncated
+    AFTER TRUNCATE
+    ON posts
+    FOR EACH STATEMENT
+EXECUTE PROCEDURE notify_posts();
+
+CREATE TRIGGER comments_changed
+    AFTER INSERT OR UPDATE OR DELETE
+    ON comments
+    FOR EACH ROW
+EXECUTE PROCEDURE notify_comments();
+
+CREATE TRIGGER comments_truncated
+    AFTER TRUNCATE
+    ON comments
+    FOR EACH STATEMENT
+EXECUTE PROCEDURE notify_comments();
@@ -11,7 +11,9 @@ if [ ! -d "${FRAMEWORK_DIR}" ]; then
 fi
 
 for script in *.lua; do
-  if [ "${script}" != "report.lua" ]; then
-    ./run-benchmark.sh "${FRAMEWORK_DIR}" "${script}"
-  fi
+  case "${script}" in
+    # Persisted queries, batching and defer are optional server features, run these scripts explicitly
+    report.lua | *-apq.lua | *-batch.lua | *-defer.lua) ;;
+    *) ./run-benchmark.sh "${FRAMEWORK_DIR}" "${script}" ;;
+  esac
 done
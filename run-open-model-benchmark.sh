@@ -0,0 +1,39 @@
+#!/bin/bash
+
+set -e
+
+trap "exit" INT
+
+FRAMEWORK_DIR="$1"
+if [ ! -d "${FRAMEWORK_DIR}" ]; then
+  echo "\"${FRAMEWORK_DIR}\" is not a directory."
+  exit 1
+fi
+
+SCENARIO=$2
+LUA_FILE="${SCENARIO}.lua"
+if [ ! -f "${LUA_FILE}" ]; then
+  echo "\"${SCENARIO}\" is not a scenario."
+  exit 1
+fi
+
+LOAD_GENERATOR_JAR="load-generator/target/load-generator-1.0-SNAPSHOT.jar"
+if [ ! -f "${LOAD_GENERATOR_JAR}" ]; then
+  echo "\"${LOAD_GENERATOR_JAR}\" does not exist, build it with: (cd load-generator && mvn package)"
+  exit 1
+fi
+
+CSV_FILE="${FRAMEWORK_DIR}/${SCENARIO}.csv"
+rm -f "${CSV_FILE}"
+
+SERVER_URL="http://${SERVER_HOST:-localhost}:8080/graphql"
+RATES=${RATES:-"1000 2000 4000 8000 16000 32000 64000"}
+
+echo "Warming up framework ${FRAMEWORK_DIR} for benchmark ${SCENARIO}..."
+./warmup-server.sh "${LUA_FILE}"
+
+for rate in ${RATES}; do
+  echo "Running benchmark ${SCENARIO} for framework ${FRAMEWORK_DIR} at $rate requests per second..."
+  HISTOGRAM_FILE="${FRAMEWORK_DIR}/${SCENARIO}.rate-${rate}.hgrm"
+  java -jar "${LOAD_GENERATOR_JAR}" -conf "{\"url\":\"${SERVER_URL}\",\"scenario\":\"${SCENARIO}\",\"rate\":${rate},\"duration\":60,\"histogramFile\":\"${HISTOGRAM_FILE}\",\"csvFile\":\"${CSV_FILE}\"}"
+done
@@ -23,6 +23,9 @@ fi
 if [ -n "${POSTGRES_HOST}" ]; then
   DOCKER_ENV="-e POSTGRES_HOST=${POSTGRES_HOST} ${DOCKER_ENV}"
 fi
+if [ -n "${SERVER_INSTANCES}" ]; then
+  DOCKER_ENV="-e SERVER_INSTANCES=${SERVER_INSTANCES} ${DOCKER_ENV}"
+fi
 
 cd "${FRAMEWORK_DIR}"
 source set-env.sh